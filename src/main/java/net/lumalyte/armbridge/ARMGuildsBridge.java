@@ -1,11 +1,21 @@
 package net.lumalyte.armbridge;
 
+import net.lumalyte.armbridge.services.GuildDisbandService;
+import net.lumalyte.armbridge.services.GuildInterner;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
 import net.lumalyte.armbridge.services.GuildShopService;
 import net.lumalyte.armbridge.services.ItemShopGuildService;
 import net.lumalyte.armbridge.services.PaymentRoutingService;
+import net.lumalyte.armbridge.services.RankPermissionCache;
 import net.lumalyte.armbridge.services.RelationFlagService;
+import net.lumalyte.armbridge.services.ShopRegionResolver;
+import net.lumalyte.armbridge.storage.AsyncGuildRegionRepository;
+import net.lumalyte.armbridge.storage.AsyncGuildRegionRepositoryImpl;
+import net.lumalyte.armbridge.storage.DatabaseManager;
 import net.lumalyte.armbridge.storage.GuildRegionRepository;
 import net.lumalyte.armbridge.storage.GuildRegionRepositoryImpl;
+import net.lumalyte.armbridge.storage.SchemaMigrations;
+import net.lumalyte.armbridge.storage.SchemaMigrator;
 import net.lumalyte.lg.application.services.GuildService;
 import net.lumalyte.lg.application.services.GuildVaultService;
 import net.lumalyte.lg.application.services.MemberService;
@@ -13,6 +23,8 @@ import net.lumalyte.lg.application.services.RankService;
 import net.lumalyte.lg.application.services.RelationService;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.sql.SQLException;
 import java.util.logging.Logger;
 
 /**
@@ -32,11 +44,20 @@ public class ARMGuildsBridge extends JavaPlugin {
     private RelationService relationService;
 
     // Bridge services
+    private DatabaseManager databaseManager;
+    private SchemaMigrator schemaMigrator;
     private GuildRegionRepository guildRegionRepository;
+    private AsyncGuildRegionRepository asyncGuildRegionRepository;
+    private MainThreadExecutor mainThreadExecutor;
     private GuildShopService guildShopService;
     private PaymentRoutingService paymentRoutingService;
     private RelationFlagService relationFlagService;
     private ItemShopGuildService itemShopGuildService;
+    private ShopRegionResolver shopRegionResolver;
+    private GuildDisbandService guildDisbandService;
+    private GuildInterner guildInterner;
+    private GuildMembershipCache guildMembershipCache;
+    private RankPermissionCache rankPermissionCache;
 
     @Override
     public void onEnable() {
@@ -54,7 +75,11 @@ public class ARMGuildsBridge extends JavaPlugin {
         }
 
         // Initialize storage
-        initializeStorage();
+        if (!initializeStorage()) {
+            logger.severe("Failed to open the guild shop database! Disabling plugin.");
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
 
         // Initialize services
         initializeServices();
@@ -89,6 +114,26 @@ public class ARMGuildsBridge extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // Stop background migrations and loaders, flush queued shop transactions and close the database
+        if (schemaMigrator != null) {
+            schemaMigrator.stop();
+        }
+        if (itemShopGuildService != null) {
+            itemShopGuildService.close();
+        }
+        if (relationFlagService != null) {
+            relationFlagService.close();
+        }
+        if (asyncGuildRegionRepository != null) {
+            asyncGuildRegionRepository.close();
+        }
+        if (guildRegionRepository != null) {
+            guildRegionRepository.close();
+        }
+        if (databaseManager != null) {
+            databaseManager.close();
+        }
+
         logger.info("ARM-Guilds-Bridge disabled.");
     }
 
@@ -131,7 +176,38 @@ public class ARMGuildsBridge extends JavaPlugin {
     /**
      * Initialize storage layer
      */
-    private void initializeStorage() {
+    private boolean initializeStorage() {
+        File dataFolder = getDataFolder();
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+
+        // Single connection manager shared by every store using guild_shops.db
+        databaseManager = new DatabaseManager(
+            logger,
+            new File(dataFolder, "guild_shops.db"),
+            getConfig().getInt("storage.read-connections", 3),
+            getConfig().getLong("storage.read-timeout-ms", 2000L)
+        );
+        schemaMigrator = new SchemaMigrator(
+            logger,
+            databaseManager,
+            SchemaMigrations.all(logger, getConfig().getInt("storage.migration.chunk-size", 5000)),
+            getConfig().getLong("storage.migration.chunk-pause-ms", 50L)
+        );
+        try {
+            databaseManager.open();
+            schemaMigrator.migrate();
+        } catch (SQLException e) {
+            logger.severe("Failed to initialize database: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        schemaMigrator.startBackfills();
+        if (getConfig().getBoolean("storage.vacuum.convert-to-incremental", false)) {
+            databaseManager.startIncrementalVacuumConversion();
+        }
+
         String storageType = getConfig().getString("storage.type", "database");
 
         if ("database".equalsIgnoreCase(storageType)) {
@@ -143,18 +219,40 @@ public class ARMGuildsBridge extends JavaPlugin {
                 // For now, create a new repository (will implement shared connection later)
             }
 
-            guildRegionRepository = new GuildRegionRepositoryImpl(this);
+            guildRegionRepository = new GuildRegionRepositoryImpl(this, databaseManager);
             logger.info("Initialized database storage for guild shop regions");
         } else {
             logger.warning("YAML storage not yet implemented, using database");
-            guildRegionRepository = new GuildRegionRepositoryImpl(this);
+            guildRegionRepository = new GuildRegionRepositoryImpl(this, databaseManager);
         }
+
+        // Non-blocking access for commands; results hop back to the main thread
+        mainThreadExecutor = new MainThreadExecutor(this);
+        asyncGuildRegionRepository = new AsyncGuildRegionRepositoryImpl(logger, guildRegionRepository);
+
+        return true;
     }
 
     /**
      * Initialize bridge services
      */
     private void initializeServices() {
+        // Dense guild indices shared by the in-memory lookup structures
+        guildInterner = new GuildInterner();
+
+        // Player -> guild memberships for the hot listeners
+        guildMembershipCache = new net.lumalyte.armbridge.services.GuildMembershipCacheImpl(this);
+
+        // (Player, guild) -> rank permission bitmask for the shop permission checks
+        rankPermissionCache = new net.lumalyte.armbridge.services.RankPermissionCacheImpl(this);
+
+        // Initialize ShopRegionResolver (shared location -> guild shop lookup)
+        shopRegionResolver = new net.lumalyte.armbridge.services.ShopRegionResolverImpl(
+            this,
+            guildRegionRepository
+        );
+        logger.info("Initialized ShopRegionResolver");
+
         // Initialize GuildShopService
         guildShopService = new net.lumalyte.armbridge.services.GuildShopServiceImpl(
             this,
@@ -175,14 +273,39 @@ public class ARMGuildsBridge extends JavaPlugin {
         logger.info("Initialized RelationFlagService (stub - WorldGuard integration pending)");
 
         // Initialize ItemShopGuildService
-        itemShopGuildService = new net.lumalyte.armbridge.services.ItemShopGuildServiceImpl(this);
+        itemShopGuildService = new net.lumalyte.armbridge.services.ItemShopGuildServiceImpl(this, databaseManager);
         logger.info("Initialized ItemShopGuildService");
+
+        // Initialize GuildDisbandService (cleanup pipeline for deleted guilds)
+        guildDisbandService = new net.lumalyte.armbridge.services.GuildDisbandServiceImpl(this);
+        logger.info("Initialized GuildDisbandService");
     }
 
     /**
      * Register event listeners
      */
     private void registerListeners() {
+        // Register guild membership listener (keeps the membership and permission caches in step)
+        getServer().getPluginManager().registerEvents(
+            new net.lumalyte.armbridge.listeners.GuildMembershipListener(this),
+            this
+        );
+        logger.info("Registered GuildMembershipListener");
+
+        // Register chunk cache listener (drops per-chunk lookup caches on unload)
+        getServer().getPluginManager().registerEvents(
+            new net.lumalyte.armbridge.listeners.ChunkCacheListener(this),
+            this
+        );
+        logger.info("Registered ChunkCacheListener");
+
+        // Chunks loaded before the listener was registered (spawn chunks, reloads)
+        for (org.bukkit.World world : getServer().getWorlds()) {
+            for (org.bukkit.Chunk chunk : world.getLoadedChunks()) {
+                itemShopGuildService.preloadChunk(world.getName(), chunk.getX(), chunk.getZ());
+            }
+        }
+
         // Register region purchase listener (hooks into ARM PreBuyEvent)
         getServer().getPluginManager().registerEvents(
             new net.lumalyte.armbridge.listeners.RegionPurchaseListener(this),
@@ -223,6 +346,11 @@ public class ARMGuildsBridge extends JavaPlugin {
         );
         logger.info("Registered RelationChangeListener");
 
+        // Register guild disband listener (event class is resolved at runtime)
+        if (new net.lumalyte.armbridge.listeners.GuildDisbandListener(this).register()) {
+            logger.info("Registered GuildDisbandListener");
+        }
+
         // Register shop sign interaction listener (WINDOW_SHOP mode)
         getServer().getPluginManager().registerEvents(
             new net.lumalyte.armbridge.listeners.ShopSignInteractionListener(this),
@@ -287,6 +415,22 @@ public class ARMGuildsBridge extends JavaPlugin {
         return relationService;
     }
 
+    public AsyncGuildRegionRepository getAsyncGuildRegionRepository() {
+        return asyncGuildRegionRepository;
+    }
+
+    public MainThreadExecutor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    public SchemaMigrator getSchemaMigrator() {
+        return schemaMigrator;
+    }
+
+    public DatabaseManager getDatabaseManager() {
+        return databaseManager;
+    }
+
     public GuildRegionRepository getGuildRegionRepository() {
         return guildRegionRepository;
     }
@@ -306,4 +450,24 @@ public class ARMGuildsBridge extends JavaPlugin {
     public ItemShopGuildService getItemShopGuildService() {
         return itemShopGuildService;
     }
+
+    public ShopRegionResolver getShopRegionResolver() {
+        return shopRegionResolver;
+    }
+
+    public GuildDisbandService getGuildDisbandService() {
+        return guildDisbandService;
+    }
+
+    public GuildInterner getGuildInterner() {
+        return guildInterner;
+    }
+
+    public GuildMembershipCache getGuildMembershipCache() {
+        return guildMembershipCache;
+    }
+
+    public RankPermissionCache getRankPermissionCache() {
+        return rankPermissionCache;
+    }
 }
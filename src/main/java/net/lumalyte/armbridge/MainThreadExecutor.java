@@ -0,0 +1,29 @@
+package net.lumalyte.armbridge;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that runs tasks on the server main thread
+ * Use it to hop back from async storage work before touching the Bukkit API, e.g.
+ * {@code future.thenAcceptAsync(result -> player.sendMessage(...), plugin.getMainThreadExecutor())}.
+ * Tasks already on the main thread run immediately; tasks submitted after the plugin is disabled are dropped.
+ */
+public class MainThreadExecutor implements Executor {
+
+    private final Plugin plugin;
+
+    public MainThreadExecutor(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (plugin.getServer().isPrimaryThread()) {
+            task.run();
+        } else if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+}
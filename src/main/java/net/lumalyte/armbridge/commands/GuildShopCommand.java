@@ -1,20 +1,21 @@
 package net.lumalyte.armbridge.commands;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
-import com.sk89q.worldguard.protection.managers.RegionManager;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import net.lumalyte.armbridge.ARMGuildsBridge;
 import net.lumalyte.armbridge.models.EnemyAccessMode;
+import net.lumalyte.armbridge.services.GuildDisbandService;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
 import net.lumalyte.armbridge.services.GuildShopService;
+import net.lumalyte.armbridge.services.ItemShopGuildService;
+import net.lumalyte.armbridge.services.RankPermissionCache;
+import net.lumalyte.armbridge.services.RelationFlagService;
+import net.lumalyte.armbridge.services.ShopRegionResolver;
+import net.lumalyte.armbridge.storage.AsyncGuildRegionRepository;
+import net.lumalyte.armbridge.storage.DatabaseManager;
 import net.lumalyte.armbridge.storage.ShopRegionInfo;
+import net.lumalyte.armbridge.storage.TransactionJournal;
 import net.lumalyte.lg.application.services.MemberService;
 import net.lumalyte.lg.application.services.RankService;
 import net.lumalyte.lg.domain.entities.RankPermission;
-import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -34,12 +35,16 @@ import java.util.stream.Collectors;
 public class GuildShopCommand implements CommandExecutor, TabCompleter {
 
     private final ARMGuildsBridge plugin;
+    private final AsyncGuildRegionRepository asyncRepository;
+    private final ShopRegionResolver shopRegionResolver;
     private final GuildShopService shopService;
     private final MemberService memberService;
     private final RankService rankService;
 
     public GuildShopCommand(ARMGuildsBridge plugin) {
         this.plugin = plugin;
+        this.asyncRepository = plugin.getAsyncGuildRegionRepository();
+        this.shopRegionResolver = plugin.getShopRegionResolver();
         this.shopService = plugin.getGuildShopService();
         this.memberService = plugin.getMemberService();
         this.rankService = plugin.getRankService();
@@ -66,6 +71,10 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
                 return handleInfo(player);
             case "setmode":
                 return handleSetMode(player, args);
+            case "stats":
+                return handleStats(player);
+            case "cleanup":
+                return handleCleanup(player, args);
             case "help":
                 sendHelp(player);
                 return true;
@@ -79,6 +88,10 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
         player.sendMessage("§6§l=== Guild Shop Commands ===");
         player.sendMessage("§e/guildshop info §7- Show info about the shop you're in");
         player.sendMessage("§e/guildshop setmode <mode> [upcharge%] §7- Set enemy access mode");
+        if (player.hasPermission("armbridge.guildshop.admin")) {
+            player.sendMessage("§e/guildshop stats §7- Show storage and cache statistics");
+            player.sendMessage("§e/guildshop cleanup <guild-uuid> §7- Remove all shop data of a disbanded guild");
+        }
         player.sendMessage("");
         player.sendMessage("§6Enemy Access Modes:");
         player.sendMessage("  §eBAN §7- Enemies cannot enter the shop §a✓ READY");
@@ -98,20 +111,26 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
     }
 
     private boolean handleInfo(Player player) {
-        ShopRegionInfo shopInfo = getShopAtLocation(player.getLocation());
+        ShopRegionInfo shopAtLocation = shopRegionResolver.getShopRegionInfo(player.getLocation());
 
-        if (shopInfo == null) {
+        if (shopAtLocation == null) {
             player.sendMessage("§cYou are not standing in a guild shop region!");
             return true;
         }
 
         // Check if player is in the shop owner guild
         Set<UUID> playerGuilds = memberService.getPlayerGuilds(player.getUniqueId());
-        if (playerGuilds.isEmpty() || !playerGuilds.contains(shopInfo.getGuildId())) {
+        if (playerGuilds.isEmpty() || !playerGuilds.contains(shopAtLocation.getGuildId())) {
             player.sendMessage("§cThis shop does not belong to your guild!");
             return true;
         }
 
+        // The resolver answers from the in-memory shop index, so its info is already current
+        sendShopInfo(player, shopAtLocation);
+        return true;
+    }
+
+    private void sendShopInfo(Player player, ShopRegionInfo shopInfo) {
         player.sendMessage("§6§l=== Guild Shop Info ===");
         player.sendMessage("§eRegion: §f" + shopInfo.getRegionId());
         player.sendMessage("§eWorld: §f" + shopInfo.getWorldName());
@@ -125,8 +144,6 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
             player.sendMessage("§7Enemies see warnings but prices aren't modified.");
             player.sendMessage("§7Waiting for ItemShops source code.");
         }
-
-        return true;
     }
 
     private boolean handleSetMode(Player player, String[] args) {
@@ -137,7 +154,7 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
         }
 
         // Get shop region at player location
-        ShopRegionInfo shopInfo = getShopAtLocation(player.getLocation());
+        ShopRegionInfo shopInfo = shopRegionResolver.getShopRegionInfo(player.getLocation());
         if (shopInfo == null) {
             player.sendMessage("§cYou are not standing in a guild shop region!");
             return true;
@@ -190,14 +207,21 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
             }
         }
 
-        // Update mode
-        boolean success = shopService.updateEnemyAccessMode(
-            shopInfo.getRegionId(),
-            shopInfo.getWorldName(),
-            mode,
-            upchargePercentage
-        );
+        // Update mode through the service (which logs the change) off the main thread, then reply on it
+        final double newUpcharge = upchargePercentage;
+        asyncRepository.submit(() -> shopService.updateEnemyAccessMode(shopInfo.getRegionId(),
+                shopInfo.getWorldName(), mode, newUpcharge))
+            .thenAcceptAsync(success -> {
+                if (player.isOnline()) {
+                    sendSetModeResult(player, success, mode, newUpcharge);
+                }
+            }, plugin.getMainThreadExecutor())
+            .exceptionally(error -> reportFailure(player, "update enemy access mode", error));
+
+        return true;
+    }
 
+    private void sendSetModeResult(Player player, boolean success, EnemyAccessMode mode, double upchargePercentage) {
         if (success) {
             player.sendMessage("§aSuccessfully updated enemy access mode to §e" + mode.name());
             if (mode == EnemyAccessMode.UPCHARGE) {
@@ -215,38 +239,109 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
         } else {
             player.sendMessage("§cFailed to update enemy access mode!");
         }
-
-        return true;
     }
 
     /**
-     * Get shop region info at player's location
+     * Log an unexpected async failure and tell the player (on the main thread)
      */
-    private ShopRegionInfo getShopAtLocation(Location location) {
-        try {
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(location.getWorld()));
-
-            if (regions == null) {
-                return null;
+    private Void reportFailure(Player player, String action, Throwable error) {
+        plugin.getLogger().severe("Failed to " + action + ": " + error.getMessage());
+        error.printStackTrace();
+        plugin.getMainThreadExecutor().execute(() -> {
+            if (player.isOnline()) {
+                player.sendMessage("§cFailed to " + action + "!");
             }
+        });
+        return null;
+    }
 
-            BlockVector3 position = BlockVector3.at(location.getX(), location.getY(), location.getZ());
-            ApplicableRegionSet regionSet = regions.getApplicableRegions(position);
+    private boolean handleStats(Player player) {
+        if (!player.hasPermission("armbridge.guildshop.admin")) {
+            player.sendMessage("§cYou don't have permission to view guild shop statistics!");
+            return true;
+        }
 
-            for (ProtectedRegion region : regionSet) {
-                ShopRegionInfo shopInfo = plugin.getGuildRegionRepository()
-                    .getShopRegionInfo(region.getId(), location.getWorld().getName());
-                if (shopInfo != null) {
-                    return shopInfo;
-                }
-            }
+        DatabaseManager database = plugin.getDatabaseManager();
+        long hits = database.getStatementCacheHits();
+        long misses = database.getStatementCacheMisses();
+        long total = hits + misses;
+
+        player.sendMessage("§6§l=== Guild Shop Statistics ===");
+        player.sendMessage("§ePrepared statements: §f" + hits + " §7hits, §f" + misses + " §7misses" +
+            (total > 0 ? " §7(" + String.format("%.1f", hits * 100.0 / total) + "% hit rate)" : ""));
+
+        TransactionJournal journal = plugin.getGuildRegionRepository().getTransactionJournal();
+        player.sendMessage("§eTransaction journal: §f" + journal.getPendingCount() + " §7pending, §f" +
+            journal.getRetriedCount() + " §7retried, " +
+            (journal.getOverflowedCount() > 0 ? "§c" : "§f") + journal.getOverflowedCount() + " §7dropped (queue full), " +
+            (journal.getDroppedCount() > 0 ? "§c" : "§f") + journal.getDroppedCount() + " §7dropped (write failed)");
+
+        ItemShopGuildService itemShops = plugin.getItemShopGuildService();
+        long shopHits = itemShops.getCacheHits();
+        long shopMisses = itemShops.getCacheMisses();
+        long shopTotal = shopHits + shopMisses;
+        player.sendMessage("§eItemShop cache: §f" + shopHits + " §7hits, §f" + shopMisses + " §7misses" +
+            (shopTotal > 0 ? " §7(" + String.format("%.1f", shopHits * 100.0 / shopTotal) + "% hit rate)" : "") +
+            ", §f" + itemShops.getCachedChunkCount() + " §7chunks cached, §f" + itemShops.getCacheEvictions() +
+            " §7evicted");
+
+        GuildMembershipCache memberships = plugin.getGuildMembershipCache();
+        long memberHits = memberships.getCacheHits();
+        long memberMisses = memberships.getCacheMisses();
+        long memberTotal = memberHits + memberMisses;
+        player.sendMessage("§eMembership cache: §f" + memberHits + " §7hits, §f" + memberMisses + " §7misses" +
+            (memberTotal > 0 ? " §7(" + String.format("%.1f", memberHits * 100.0 / memberTotal) + "% hit rate)" : "") +
+            ", §f" + memberships.getCachedPlayerCount() + " §7players cached");
+
+        RankPermissionCache permissions = plugin.getRankPermissionCache();
+        long permissionHits = permissions.getCacheHits();
+        long permissionMisses = permissions.getCacheMisses();
+        long permissionTotal = permissionHits + permissionMisses;
+        player.sendMessage("§ePermission cache: §f" + permissionHits + " §7hits, §f" + permissionMisses + " §7misses" +
+            (permissionTotal > 0 ? " §7(" + String.format("%.1f", permissionHits * 100.0 / permissionTotal) +
+                "% hit rate)" : ""));
+
+        RelationFlagService relationFlags = plugin.getRelationFlagService();
+        player.sendMessage("§eFlag reconciler: §f" + relationFlags.getReconcileCycles() + " §7cycles, §f" +
+            relationFlags.getReconciledRegions() + " §7regions checked, §f" + relationFlags.getDriftedRegions() +
+            " §7repaired (§f+" + relationFlags.getDriftEntriesAdded() + " §7/ §f-" +
+            relationFlags.getDriftEntriesRemoved() + " §7guild entries)");
 
-            return null;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error getting shop at location: " + e.getMessage());
-            return null;
+        return true;
+    }
+
+    private boolean handleCleanup(Player player, String[] args) {
+        if (!player.hasPermission("armbridge.guildshop.admin")) {
+            player.sendMessage("§cYou don't have permission to clean up guild shop data!");
+            return true;
         }
+
+        if (args.length < 2) {
+            player.sendMessage("§cUsage: /guildshop cleanup <guild-uuid>");
+            return true;
+        }
+
+        UUID guildId;
+        try {
+            guildId = UUID.fromString(args[1]);
+        } catch (IllegalArgumentException e) {
+            player.sendMessage("§cInvalid guild UUID: " + args[1]);
+            return true;
+        }
+
+        if (plugin.getGuildService().getGuild(guildId) != null) {
+            player.sendMessage("§cGuild " + guildId + " still exists - only disbanded guilds can be cleaned up!");
+            return true;
+        }
+
+        GuildDisbandService disbandService = plugin.getGuildDisbandService();
+        if (disbandService.isCleanupRunning(guildId)) {
+            player.sendMessage("§cA cleanup for guild " + guildId + " is already running!");
+            return true;
+        }
+
+        disbandService.cleanupGuild(guildId, player);
+        return true;
     }
 
     @Override
@@ -256,7 +351,12 @@ public class GuildShopCommand implements CommandExecutor, TabCompleter {
         }
 
         if (args.length == 1) {
-            return Arrays.asList("info", "setmode", "help").stream()
+            List<String> subcommands = new ArrayList<>(Arrays.asList("info", "setmode", "help"));
+            if (sender.hasPermission("armbridge.guildshop.admin")) {
+                subcommands.add("stats");
+                subcommands.add("cleanup");
+            }
+            return subcommands.stream()
                 .filter(s -> s.startsWith(args[0].toLowerCase()))
                 .collect(Collectors.toList());
         }
@@ -0,0 +1,48 @@
+package net.lumalyte.armbridge.listeners;
+
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.services.ItemShopGuildService;
+import net.lumalyte.armbridge.services.ShopRegionResolver;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Loads guild ItemShops as chunks load and drops per-chunk lookup caches when chunks and worlds unload
+ */
+public class ChunkCacheListener implements Listener {
+
+    private final ShopRegionResolver shopRegionResolver;
+    private final ItemShopGuildService itemShopGuildService;
+
+    public ChunkCacheListener(ARMGuildsBridge plugin) {
+        this.shopRegionResolver = plugin.getShopRegionResolver();
+        this.itemShopGuildService = plugin.getItemShopGuildService();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        if (event.isNewChunk()) {
+            return; // Freshly generated - can't contain a shop yet
+        }
+        Chunk chunk = event.getChunk();
+        itemShopGuildService.preloadChunk(event.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        shopRegionResolver.invalidateChunk(event.getWorld().getName(), chunk.getX(), chunk.getZ());
+        itemShopGuildService.invalidateChunk(event.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        shopRegionResolver.invalidateWorld(event.getWorld().getName());
+        itemShopGuildService.invalidateWorld(event.getWorld().getName());
+    }
+}
@@ -0,0 +1,102 @@
+package net.lumalyte.armbridge.listeners;
+
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.services.GuildDisbandService;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+/**
+ * Listens to the LumaGuilds guild deletion event and starts the disband cleanup pipeline
+ *
+ * The event class is resolved at runtime (guild-disband.event-class), so the bridge still loads
+ * against LumaGuilds builds that name it differently; /guildshop cleanup covers those.
+ * The guild is read from getGuildId(), or from getGuild().getId().
+ */
+public class GuildDisbandListener implements Listener {
+
+    private static final String DEFAULT_EVENT_CLASS = "net.lumalyte.lg.domain.events.GuildDeletedEvent";
+
+    private final ARMGuildsBridge plugin;
+    private final GuildDisbandService guildDisbandService;
+
+    public GuildDisbandListener(ARMGuildsBridge plugin) {
+        this.plugin = plugin;
+        this.guildDisbandService = plugin.getGuildDisbandService();
+    }
+
+    /**
+     * Register for the configured guild deletion event
+     *
+     * @return true if the event was found and registered
+     */
+    public boolean register() {
+        String className = plugin.getConfig().getString("guild-disband.event-class", DEFAULT_EVENT_CLASS);
+
+        Class<? extends Event> eventClass;
+        Method guildIdGetter;
+        Method guildGetter = null;
+        try {
+            eventClass = Class.forName(className).asSubclass(Event.class);
+            guildIdGetter = findMethod(eventClass, "getGuildId");
+            if (guildIdGetter == null) {
+                guildGetter = findMethod(eventClass, "getGuild");
+            }
+        } catch (ClassNotFoundException | ClassCastException e) {
+            plugin.getLogger().warning("Guild deletion event " + className + " not found - disbanded guilds " +
+                "must be cleaned up with /guildshop cleanup <guild>");
+            return false;
+        }
+
+        if (guildIdGetter == null && guildGetter == null) {
+            plugin.getLogger().warning("Guild deletion event " + className + " has no getGuildId() or getGuild() - " +
+                "disbanded guilds must be cleaned up with /guildshop cleanup <guild>");
+            return false;
+        }
+
+        Method idGetter = guildIdGetter;
+        Method objectGetter = guildGetter;
+        plugin.getServer().getPluginManager().registerEvent(eventClass, this, EventPriority.MONITOR,
+            (listener, event) -> {
+                if (eventClass.isInstance(event)) {
+                    onGuildDeleted(event, idGetter, objectGetter);
+                }
+            }, plugin, true);
+        return true;
+    }
+
+    private void onGuildDeleted(Event event, Method idGetter, Method objectGetter) {
+        UUID guildId;
+        try {
+            Object value = idGetter != null ? idGetter.invoke(event) : readGuildId(objectGetter.invoke(event));
+            if (!(value instanceof UUID)) {
+                return;
+            }
+            guildId = (UUID) value;
+        } catch (ReflectiveOperationException e) {
+            plugin.getLogger().warning("Failed to read guild from " + event.getEventName() + ": " + e.getMessage());
+            return;
+        }
+
+        guildDisbandService.cleanupGuild(guildId, null);
+    }
+
+    private Object readGuildId(Object guild) throws ReflectiveOperationException {
+        if (guild == null) {
+            return null;
+        }
+        Method getId = findMethod(guild.getClass(), "getId");
+        return getId != null ? getId.invoke(guild) : null;
+    }
+
+    private Method findMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package net.lumalyte.armbridge.listeners;
+
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
+import net.lumalyte.armbridge.services.RankPermissionCache;
+import net.lumalyte.lg.domain.events.GuildMemberJoinEvent;
+import net.lumalyte.lg.domain.events.GuildMemberKickEvent;
+import net.lumalyte.lg.domain.events.GuildMemberLeaveEvent;
+import net.lumalyte.lg.domain.events.GuildMemberRankChangeEvent;
+import net.lumalyte.lg.domain.events.GuildRankPermissionChangeEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.UUID;
+
+/**
+ * Keeps the guild membership and rank permission caches in step with online players and LumaGuilds
+ *
+ * Players are loaded on join and evicted from both caches on quit. Membership changes (join, leave,
+ * kick) invalidate both caches for the player, rank changes only their permissions, and a rank's
+ * permission change the permissions of the whole guild. Disbanded guilds are invalidated by the
+ * disband cleanup (GuildDisbandService).
+ */
+public class GuildMembershipListener implements Listener {
+
+    private final GuildMembershipCache membershipCache;
+    private final RankPermissionCache permissionCache;
+
+    public GuildMembershipListener(ARMGuildsBridge plugin) {
+        this.membershipCache = plugin.getGuildMembershipCache();
+        this.permissionCache = plugin.getRankPermissionCache();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        membershipCache.load(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        membershipCache.evict(event.getPlayer().getUniqueId());
+        permissionCache.evict(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+        onMembershipChanged(event.getPlayerId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onGuildMemberLeave(GuildMemberLeaveEvent event) {
+        onMembershipChanged(event.getPlayerId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onGuildMemberKick(GuildMemberKickEvent event) {
+        onMembershipChanged(event.getPlayerId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onGuildMemberRankChange(GuildMemberRankChangeEvent event) {
+        permissionCache.invalidatePlayer(event.getPlayerId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onGuildRankPermissionChange(GuildRankPermissionChangeEvent event) {
+        permissionCache.invalidateGuild(event.getGuildId());
+    }
+
+    private void onMembershipChanged(UUID playerId) {
+        membershipCache.invalidatePlayer(playerId);
+        permissionCache.invalidatePlayer(playerId);
+    }
+}
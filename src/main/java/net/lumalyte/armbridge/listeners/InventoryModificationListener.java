@@ -1,17 +1,9 @@
 package net.lumalyte.armbridge.listeners;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
-import com.sk89q.worldguard.protection.managers.RegionManager;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import net.lumalyte.armbridge.ARMGuildsBridge;
-import net.lumalyte.armbridge.services.GuildShopService;
-import net.lumalyte.lg.application.services.MemberService;
-import net.lumalyte.lg.application.services.RankService;
-import net.lumalyte.lg.domain.entities.Rank;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
+import net.lumalyte.armbridge.services.RankPermissionCache;
+import net.lumalyte.armbridge.services.ShopRegionResolver;
 import net.lumalyte.lg.domain.entities.RankPermission;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
@@ -31,15 +23,15 @@ import java.util.UUID;
 public class InventoryModificationListener implements Listener {
 
     private final ARMGuildsBridge plugin;
-    private final GuildShopService shopService;
-    private final MemberService memberService;
-    private final RankService rankService;
+    private final ShopRegionResolver shopRegionResolver;
+    private final GuildMembershipCache membershipCache;
+    private final RankPermissionCache permissionCache;
 
     public InventoryModificationListener(ARMGuildsBridge plugin) {
         this.plugin = plugin;
-        this.shopService = plugin.getGuildShopService();
-        this.memberService = plugin.getMemberService();
-        this.rankService = plugin.getRankService();
+        this.shopRegionResolver = plugin.getShopRegionResolver();
+        this.membershipCache = plugin.getGuildMembershipCache();
+        this.permissionCache = plugin.getRankPermissionCache();
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -74,14 +66,14 @@ public class InventoryModificationListener implements Listener {
         }
 
         // Check if chest is in a guild-owned shop region
-        UUID shopGuildId = getShopGuildForLocation(location);
+        UUID shopGuildId = shopRegionResolver.getShopGuild(location);
         if (shopGuildId == null) {
             // Not in a guild shop - allow normal access
             return;
         }
 
         // Check if player is in the shop owner guild
-        java.util.Set<UUID> playerGuilds = memberService.getPlayerGuilds(player.getUniqueId());
+        java.util.Set<UUID> playerGuilds = membershipCache.getPlayerGuilds(player.getUniqueId());
         if (!playerGuilds.contains(shopGuildId)) {
             // Player not in shop owner guild - deny modification
             player.sendMessage("§cYou cannot modify inventory in another guild's shop!");
@@ -97,47 +89,10 @@ public class InventoryModificationListener implements Listener {
         }
     }
 
-    /**
-     * Get the guild ID for shop at location (if any)
-     */
-    private UUID getShopGuildForLocation(Location location) {
-        try {
-            // Get WorldGuard RegionContainer
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(location.getWorld()));
-
-            if (regions == null) {
-                return null;
-            }
-
-            // Get all regions at this location
-            BlockVector3 position = BlockVector3.at(location.getX(), location.getY(), location.getZ());
-            ApplicableRegionSet regionSet = regions.getApplicableRegions(position);
-
-            // Check each region to see if it's registered as a guild shop
-            for (ProtectedRegion region : regionSet) {
-                UUID guildId = shopService.getGuildForShopRegion(region.getId(), location.getWorld().getName());
-                if (guildId != null) {
-                    return guildId;
-                }
-            }
-
-            return null;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error looking up WorldGuard region: " + e.getMessage());
-            return null;
-        }
-    }
-
     /**
      * Check if player has EDIT_SHOP_STOCK permission in guild
      */
     private boolean hasShopStockPermission(UUID playerId, UUID guildId) {
-        Rank rank = rankService.getPlayerRank(playerId, guildId);
-        if (rank == null) {
-            return false;
-        }
-
-        return rank.getPermissions().contains(RankPermission.EDIT_SHOP_STOCK);
+        return permissionCache.hasPermission(playerId, guildId, RankPermission.EDIT_SHOP_STOCK);
     }
 }
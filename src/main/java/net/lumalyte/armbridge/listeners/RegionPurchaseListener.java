@@ -3,14 +3,14 @@ package net.lumalyte.armbridge.listeners;
 import net.alex9849.arm.events.PreBuyEvent;
 import net.alex9849.arm.regions.Region;
 import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
 import net.lumalyte.armbridge.services.GuildShopService;
 import net.lumalyte.armbridge.services.PaymentRoutingService;
+import net.lumalyte.armbridge.services.RankPermissionCache;
 import net.lumalyte.armbridge.services.RelationFlagService;
 import net.lumalyte.lg.application.services.GuildService;
 import net.lumalyte.lg.application.services.MemberService;
-import net.lumalyte.lg.application.services.RankService;
 import net.lumalyte.lg.domain.entities.Guild;
-import net.lumalyte.lg.domain.entities.Rank;
 import net.lumalyte.lg.domain.entities.RankPermission;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -28,7 +28,8 @@ public class RegionPurchaseListener implements Listener {
     private final ARMGuildsBridge plugin;
     private final GuildService guildService;
     private final MemberService memberService;
-    private final RankService rankService;
+    private final GuildMembershipCache membershipCache;
+    private final RankPermissionCache permissionCache;
     private final GuildShopService shopService;
     private final PaymentRoutingService paymentService;
     private final RelationFlagService flagService;
@@ -40,7 +41,8 @@ public class RegionPurchaseListener implements Listener {
         this.plugin = plugin;
         this.guildService = plugin.getGuildService();
         this.memberService = plugin.getMemberService();
-        this.rankService = plugin.getRankService();
+        this.membershipCache = plugin.getGuildMembershipCache();
+        this.permissionCache = plugin.getRankPermissionCache();
         this.shopService = plugin.getGuildShopService();
         this.paymentService = plugin.getPaymentRoutingService();
         this.flagService = plugin.getRelationFlagService();
@@ -57,7 +59,7 @@ public class RegionPurchaseListener implements Listener {
 
         // Check if player is in a guild
         // Get all guilds the player is in (LumaGuilds supports multiple guilds)
-        java.util.Set<UUID> playerGuilds = memberService.getPlayerGuilds(buyer.getUniqueId());
+        java.util.Set<UUID> playerGuilds = membershipCache.getPlayerGuilds(buyer.getUniqueId());
         if (playerGuilds.isEmpty()) {
             // Not in a guild - let ARM handle normally
             return;
@@ -80,8 +82,8 @@ public class RegionPurchaseListener implements Listener {
             return;
         }
 
-        // Check if guild has reached shop limit
-        if (shopService.hasReachedShopLimit(guild.getId())) {
+        // Reserve a shop slot before taking payment, so concurrent purchases cannot pass the limit
+        if (!shopService.reserveShopSlot(guild.getId())) {
             int maxShops = plugin.getConfig().getInt("shop-purchase.max-shops-per-guild", 0);
             buyer.sendMessage("§cYour guild has reached the maximum shop limit (" + maxShops + ")!");
             event.setCancelled(true);
@@ -103,6 +105,7 @@ public class RegionPurchaseListener implements Listener {
         );
 
         if (!result.isSuccess()) {
+            shopService.releaseShopSlot(guild.getId());
             buyer.sendMessage("§cFailed to withdraw from guild vault: §f" + result.getError());
             buyer.sendMessage("§7Your guild needs §6" + price + " §7to purchase this shop region.");
             event.setCancelled(true);
@@ -110,10 +113,11 @@ public class RegionPurchaseListener implements Listener {
         }
 
         // Set guild as landlord (all shop income will route to guild)
+        UUID previousLandlord = region.getLandlord();
         region.setLandlord(guild.getId());
 
-        // Register shop region in our database
-        boolean registered = shopService.registerGuildShopRegion(
+        // Register shop region in our database (releases the slot if it fails)
+        boolean registered = shopService.registerReservedShopRegion(
             region.getId(),
             region.getRegionworld().getName(),
             guild.getId(),
@@ -121,7 +125,17 @@ public class RegionPurchaseListener implements Listener {
         );
 
         if (!registered) {
-            plugin.getLogger().warning("Failed to register shop region " + region.getId() + " for guild " + guild.getName());
+            // Undo the purchase: refund the guild, restore the landlord and keep ARM from selling the region
+            plugin.getLogger().warning("Failed to register shop region " + region.getId() + " for guild " +
+                guild.getName() + " - refunding " + price);
+            if (!paymentService.refundToGuild(guild.getId(), region.getId(), price, "Refund: " + reason)) {
+                plugin.getLogger().severe("Failed to refund " + price + " to guild " + guild.getName() +
+                    " for shop region " + region.getId());
+            }
+            region.setLandlord(previousLandlord);
+            buyer.sendMessage("§cFailed to register the shop region for your guild - the purchase was refunded.");
+            event.setCancelled(true);
+            return;
         }
 
         // Update WorldGuard flags (stub for now)
@@ -147,18 +161,11 @@ public class RegionPurchaseListener implements Listener {
     private boolean hasShopPurchasePermission(UUID playerUuid, Guild guild) {
         try {
             RankPermission permission = RankPermission.valueOf(requiredPermission);
-            Rank rank = rankService.getPlayerRank(playerUuid, guild.getId());
-
-            if (rank == null) {
-                return false;
-            }
-
-            return rank.getPermissions().contains(permission);
+            return permissionCache.hasPermission(playerUuid, guild.getId(), permission);
         } catch (IllegalArgumentException e) {
             plugin.getLogger().warning("Invalid permission in config: " + requiredPermission);
             // Default to MANAGE_GUILD_SETTINGS
-            Rank rank = rankService.getPlayerRank(playerUuid, guild.getId());
-            return rank != null && rank.getPermissions().contains(RankPermission.MANAGE_GUILD_SETTINGS);
+            return permissionCache.hasPermission(playerUuid, guild.getId(), RankPermission.MANAGE_GUILD_SETTINGS);
         }
     }
 
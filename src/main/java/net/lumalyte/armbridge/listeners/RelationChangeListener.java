@@ -22,14 +22,14 @@ public class RelationChangeListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onGuildRelationChange(GuildRelationChangeEvent event) {
-        // Update WorldGuard flags for all shop regions owned by these guilds
-        relationFlagService.updateRegionFlagsForRelation(
+        // Queue a WorldGuard flag update for all shop regions owned by these guilds (applied in batches)
+        relationFlagService.queueRelationChange(
             event.getGuild1(),
             event.getGuild2(),
             event.getNewRelationType()
         );
 
-        plugin.getLogger().info("Updated shop region flags for relation change: " +
+        plugin.getLogger().fine("Queued shop region flag update for relation change: " +
             event.getGuild1() + " <-> " + event.getGuild2() + " = " + event.getNewRelationType());
     }
 }
@@ -1,46 +1,50 @@
 package net.lumalyte.armbridge.listeners;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
-import com.sk89q.worldguard.protection.managers.RegionManager;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import net.lumalyte.armbridge.ARMGuildsBridge;
 import net.lumalyte.armbridge.models.EnemyAccessMode;
-import net.lumalyte.armbridge.services.GuildShopService;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
 import net.lumalyte.armbridge.services.RelationFlagService;
-import net.lumalyte.armbridge.storage.GuildRegionRepository;
+import net.lumalyte.armbridge.services.ShopRegionResolver;
 import net.lumalyte.armbridge.storage.ShopRegionInfo;
-import net.lumalyte.lg.application.services.MemberService;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 /**
  * Blocks players from enemy guilds from entering guild-owned shop regions (if BAN mode is enabled)
+ *
+ * Each player's current shop region is remembered, so guild and relation checks (and the entry notices)
+ * only run when a player actually enters a different shop region - walking around inside or outside a
+ * shop costs one cached region lookup per block. A denied entry is remembered briefly, so pushing against
+ * a banned shop's border doesn't re-run the checks or repeat the notice on every step.
  */
 public class ShopEntryListener implements Listener {
 
+    // How long a denied entry is reused before the player's access is checked again
+    private static final long DENIAL_REUSE_MS = 3000L;
+
     private final ARMGuildsBridge plugin;
-    private final GuildShopService shopService;
+    private final ShopRegionResolver shopRegionResolver;
     private final RelationFlagService relationFlagService;
-    private final MemberService memberService;
-    private final GuildRegionRepository repository;
+    private final GuildMembershipCache membershipCache;
+
+    // player UUID -> shop state (absent when not in a guild shop and nothing was denied)
+    private final Map<UUID, PlayerShopState> playerStates = new HashMap<>();
 
     public ShopEntryListener(ARMGuildsBridge plugin) {
         this.plugin = plugin;
-        this.shopService = plugin.getGuildShopService();
+        this.shopRegionResolver = plugin.getShopRegionResolver();
         this.relationFlagService = plugin.getRelationFlagService();
-        this.memberService = plugin.getMemberService();
-        this.repository = plugin.getGuildRegionRepository();
+        this.membershipCache = plugin.getGuildMembershipCache();
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -57,39 +61,86 @@ public class ShopEntryListener implements Listener {
 
         Player player = event.getPlayer();
 
+        // Check if player is entering a guild shop region
+        ShopRegionInfo shopInfo = shopRegionResolver.getShopRegionInfo(to);
+        PlayerShopState state = playerStates.get(player.getUniqueId());
+        if (isSameShop(shopInfo, state != null ? state.currentShop : null)) {
+            return; // Still inside the same shop (or still outside) - already evaluated
+        }
+
+        if (shopInfo == null) {
+            state.currentShop = null; // Left the shop
+            if (state.deniedShop == null) {
+                playerStates.remove(player.getUniqueId());
+            }
+            return;
+        }
+
+        if (state == null) {
+            state = new PlayerShopState();
+            playerStates.put(player.getUniqueId(), state);
+        }
+
+        long now = System.currentTimeMillis();
+        boolean recentlyDenied = isSameShop(shopInfo, state.deniedShop) && now - state.deniedAt < DENIAL_REUSE_MS;
+        if (recentlyDenied || !evaluateEntry(player, shopInfo)) {
+            if (!recentlyDenied) {
+                state.deniedShop = shopInfo;
+                state.deniedAt = now;
+            }
+            event.setCancelled(true);
+            player.teleport(from);
+            return; // Stays in its previous shop state
+        }
+
+        state.currentShop = shopInfo;
+        state.deniedShop = null;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        playerStates.remove(event.getPlayer().getUniqueId());
+    }
+
+    private boolean isSameShop(ShopRegionInfo a, ShopRegionInfo b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getRegionId().equals(b.getRegionId()) && a.getWorldName().equals(b.getWorldName());
+    }
+
+    /**
+     * Decide whether a player may enter a shop region, sending the enemy shop notice if it applies
+     *
+     * @return false if entry is denied
+     */
+    private boolean evaluateEntry(Player player, ShopRegionInfo shopInfo) {
         // Get player's guild
-        Set<UUID> playerGuilds = memberService.getPlayerGuilds(player.getUniqueId());
+        Set<UUID> playerGuilds = membershipCache.getPlayerGuilds(player.getUniqueId());
         if (playerGuilds.isEmpty()) {
-            return; // No guild - allow movement
+            return true; // No guild - allow movement
         }
 
         UUID playerGuildId = playerGuilds.iterator().next();
 
-        // Check if player is entering a guild shop region
-        ShopRegionInfo shopInfo = getShopRegionInfoForLocation(to);
-        if (shopInfo == null) {
-            return; // Not in a guild shop
-        }
-
         // Allow if player is in the shop owner guild
         if (shopInfo.getGuildId().equals(playerGuildId)) {
-            return;
+            return true;
         }
 
         // Check if player's guild is blocked from this region
-        if (isGuildBlockedFromLocation(to, playerGuildId)) {
+        if (relationFlagService.isGuildBlockedFromRegion(shopInfo.getRegionId(), shopInfo.getWorldName(), playerGuildId)) {
             // Get the access mode for this shop
             EnemyAccessMode accessMode = shopInfo.getEnemyAccessMode();
 
             // Only block entry for BAN mode
             if (accessMode == EnemyAccessMode.BAN) {
-                event.setCancelled(true);
                 player.sendMessage("");
                 player.sendMessage("§c§l⚠ ENEMY SHOP - ACCESS DENIED ⚠");
                 player.sendMessage("§7This shop belongs to an enemy guild.");
                 player.sendMessage("§7You are not allowed to enter.");
                 player.sendMessage("");
-                player.teleport(from);
+                return false;
             } else if (accessMode == EnemyAccessMode.UPCHARGE) {
                 player.sendMessage("");
                 player.sendMessage("§6§l⚠ ENEMY SHOP - UPCHARGE NOTICE ⚠");
@@ -107,71 +158,14 @@ public class ShopEntryListener implements Listener {
             }
             // ALLOW mode - no message, full access
         }
+        return true;
     }
 
-    /**
-     * Get the shop region info for location (if any)
-     */
-    private ShopRegionInfo getShopRegionInfoForLocation(Location location) {
-        try {
-            // Get WorldGuard RegionContainer
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(location.getWorld()));
-
-            if (regions == null) {
-                return null;
-            }
-
-            // Get all regions at this location
-            BlockVector3 position = BlockVector3.at(location.getX(), location.getY(), location.getZ());
-            ApplicableRegionSet regionSet = regions.getApplicableRegions(position);
-
-            // Check each region to see if it's registered as a guild shop
-            for (ProtectedRegion region : regionSet) {
-                ShopRegionInfo shopInfo = repository.getShopRegionInfo(region.getId(), location.getWorld().getName());
-                if (shopInfo != null) {
-                    return shopInfo;
-                }
-            }
-
-            return null;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error looking up WorldGuard region: " + e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * Check if a guild is blocked from entering a location
-     */
-    private boolean isGuildBlockedFromLocation(Location location, UUID guildId) {
-        try {
-            // Get WorldGuard RegionContainer
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(location.getWorld()));
-
-            if (regions == null) {
-                return false;
-            }
-
-            // Get all regions at this location
-            BlockVector3 position = BlockVector3.at(location.getX(), location.getY(), location.getZ());
-            ApplicableRegionSet regionSet = regions.getApplicableRegions(position);
-
-            // Check each region to see if guild is blocked
-            for (ProtectedRegion region : regionSet) {
-                if (relationFlagService.isGuildBlockedFromRegion(
-                        region.getId(),
-                        location.getWorld().getName(),
-                        guildId)) {
-                    return true;
-                }
-            }
-
-            return false;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error checking if guild is blocked: " + e.getMessage());
-            return false;
-        }
+    private static final class PlayerShopState {
+        // Shop region the player is in (null when outside every guild shop)
+        ShopRegionInfo currentShop;
+        // Last shop the player was denied entry to, and when
+        ShopRegionInfo deniedShop;
+        long deniedAt;
     }
 }
@@ -1,18 +1,11 @@
 package net.lumalyte.armbridge.listeners;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
-import com.sk89q.worldguard.protection.managers.RegionManager;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import net.lumalyte.armbridge.ARMGuildsBridge;
 import net.lumalyte.armbridge.models.EnemyAccessMode;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
 import net.lumalyte.armbridge.services.RelationFlagService;
-import net.lumalyte.armbridge.storage.GuildRegionRepository;
+import net.lumalyte.armbridge.services.ShopRegionResolver;
 import net.lumalyte.armbridge.storage.ShopRegionInfo;
-import net.lumalyte.lg.application.services.MemberService;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.block.Sign;
@@ -32,14 +25,14 @@ import java.util.UUID;
 public class ShopSignInteractionListener implements Listener {
 
     private final ARMGuildsBridge plugin;
-    private final GuildRegionRepository repository;
-    private final MemberService memberService;
+    private final ShopRegionResolver shopRegionResolver;
+    private final GuildMembershipCache membershipCache;
     private final RelationFlagService relationFlagService;
 
     public ShopSignInteractionListener(ARMGuildsBridge plugin) {
         this.plugin = plugin;
-        this.repository = plugin.getGuildRegionRepository();
-        this.memberService = plugin.getMemberService();
+        this.shopRegionResolver = plugin.getShopRegionResolver();
+        this.membershipCache = plugin.getGuildMembershipCache();
         this.relationFlagService = plugin.getRelationFlagService();
     }
 
@@ -59,13 +52,13 @@ public class ShopSignInteractionListener implements Listener {
         Location location = block.getLocation();
 
         // Get shop region info
-        ShopRegionInfo shopInfo = getShopRegionInfoForLocation(location);
+        ShopRegionInfo shopInfo = shopRegionResolver.getShopRegionInfo(location);
         if (shopInfo == null) {
             return; // Not in a guild shop
         }
 
         // Get player's guild
-        Set<UUID> playerGuilds = memberService.getPlayerGuilds(player.getUniqueId());
+        Set<UUID> playerGuilds = membershipCache.getPlayerGuilds(player.getUniqueId());
         if (playerGuilds.isEmpty()) {
             return; // No guild
         }
@@ -78,7 +71,7 @@ public class ShopSignInteractionListener implements Listener {
         }
 
         // Check if player's guild is enemy
-        if (!isGuildBlockedFromRegion(location, playerGuildId)) {
+        if (!relationFlagService.isGuildBlockedFromRegion(shopInfo.getRegionId(), shopInfo.getWorldName(), playerGuildId)) {
             return; // Not an enemy
         }
 
@@ -109,64 +102,4 @@ public class ShopSignInteractionListener implements Listener {
         }
         // ALLOW mode has no restrictions
     }
-
-    /**
-     * Get the shop region info for location (if any)
-     */
-    private ShopRegionInfo getShopRegionInfoForLocation(Location location) {
-        try {
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(location.getWorld()));
-
-            if (regions == null) {
-                return null;
-            }
-
-            BlockVector3 position = BlockVector3.at(location.getX(), location.getY(), location.getZ());
-            ApplicableRegionSet regionSet = regions.getApplicableRegions(position);
-
-            for (ProtectedRegion region : regionSet) {
-                ShopRegionInfo shopInfo = repository.getShopRegionInfo(region.getId(), location.getWorld().getName());
-                if (shopInfo != null) {
-                    return shopInfo;
-                }
-            }
-
-            return null;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error looking up shop region: " + e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * Check if a guild is blocked from a location
-     */
-    private boolean isGuildBlockedFromRegion(Location location, UUID guildId) {
-        try {
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(location.getWorld()));
-
-            if (regions == null) {
-                return false;
-            }
-
-            BlockVector3 position = BlockVector3.at(location.getX(), location.getY(), location.getZ());
-            ApplicableRegionSet regionSet = regions.getApplicableRegions(position);
-
-            for (ProtectedRegion region : regionSet) {
-                if (relationFlagService.isGuildBlockedFromRegion(
-                        region.getId(),
-                        location.getWorld().getName(),
-                        guildId)) {
-                    return true;
-                }
-            }
-
-            return false;
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error checking if guild is blocked: " + e.getMessage());
-            return false;
-        }
-    }
 }
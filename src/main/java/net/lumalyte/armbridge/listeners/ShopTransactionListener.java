@@ -3,10 +3,10 @@ package net.lumalyte.armbridge.listeners;
 import net.alex9849.arm.events.PreShopTransactionEvent;
 import net.lumalyte.armbridge.ARMGuildsBridge;
 import net.lumalyte.armbridge.models.EnemyAccessMode;
+import net.lumalyte.armbridge.services.GuildMembershipCache;
 import net.lumalyte.armbridge.services.RelationFlagService;
 import net.lumalyte.armbridge.storage.GuildRegionRepository;
 import net.lumalyte.armbridge.storage.ShopRegionInfo;
-import net.lumalyte.lg.application.services.MemberService;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -23,13 +23,13 @@ public class ShopTransactionListener implements Listener {
 
     private final ARMGuildsBridge plugin;
     private final GuildRegionRepository repository;
-    private final MemberService memberService;
+    private final GuildMembershipCache membershipCache;
     private final RelationFlagService relationFlagService;
 
     public ShopTransactionListener(ARMGuildsBridge plugin) {
         this.plugin = plugin;
         this.repository = plugin.getGuildRegionRepository();
-        this.memberService = plugin.getMemberService();
+        this.membershipCache = plugin.getGuildMembershipCache();
         this.relationFlagService = plugin.getRelationFlagService();
     }
 
@@ -44,7 +44,7 @@ public class ShopTransactionListener implements Listener {
         }
 
         // Get buyer's guild
-        Set<UUID> playerGuilds = memberService.getPlayerGuilds(buyer.getUniqueId());
+        Set<UUID> playerGuilds = membershipCache.getPlayerGuilds(buyer.getUniqueId());
         if (playerGuilds.isEmpty()) {
             return; // No guild - normal pricing
         }
@@ -7,24 +7,49 @@ public enum EnemyAccessMode {
     /**
      * Enemy guilds are completely blocked from entering the region
      */
-    BAN,
+    BAN(0),
 
     /**
      * Enemy guilds can purchase from the shop but pay an upcharge percentage
      * (e.g., 50% upcharge means they pay 150% of normal price)
      */
-    UPCHARGE,
+    UPCHARGE(1),
 
     /**
      * Enemy guilds can enter and view the shop but cannot purchase
      * (window shopping only)
      */
-    WINDOW_SHOP,
+    WINDOW_SHOP(2),
 
     /**
      * Enemy guilds have full access with no restrictions
      */
-    ALLOW;
+    ALLOW(3);
+
+    private final int code;
+
+    EnemyAccessMode(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Stable integer code stored in the database (independent of declaration order)
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Parse from a stored code, returns default if unknown
+     */
+    public static EnemyAccessMode fromCode(int code) {
+        for (EnemyAccessMode mode : values()) {
+            if (mode.code == code) {
+                return mode;
+            }
+        }
+        return getDefault();
+    }
 
     /**
      * Get the default enemy access mode
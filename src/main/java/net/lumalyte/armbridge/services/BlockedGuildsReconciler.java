@@ -0,0 +1,202 @@
+package net.lumalyte.armbridge.services;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.storage.ShopRegionInfo;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Periodically checks every shop region's blocked-guilds flag against the current ENEMY relations
+ *
+ * Catches drift from relation changes that were missed (plugin reloads, crashes) and from manual
+ * WorldGuard edits. Each cycle looks up the enemies of every shop-owning guild on the relation worker,
+ * then walks the shop regions a few per tick on the main thread and rewrites only the flags that differ.
+ * If a relation changes during a cycle, the enemies are looked up again before the walk continues.
+ */
+class BlockedGuildsReconciler {
+
+    private final ARMGuildsBridge plugin;
+    private final RelationFlagServiceImpl flagService;
+    private final GuildInterner guildInterner;
+    private final Executor worker;
+    private final int regionsPerTick;
+
+    // Current cycle (main thread only)
+    private List<ShopRegionInfo> regions;
+    private int cursor;
+    // owner guild index -> enemy guild indices
+    private Int2ObjectMap<BitSet> expected;
+    private long expectedEpoch;
+    private boolean computing;
+    private BukkitTask walkTask;
+    private long cycleStarted;
+    private int cycleDrifted;
+
+    private final LongAdder cycles = new LongAdder();
+    private final LongAdder regionsChecked = new LongAdder();
+    private final LongAdder regionsDrifted = new LongAdder();
+    private final LongAdder entriesAdded = new LongAdder();
+    private final LongAdder entriesRemoved = new LongAdder();
+
+    BlockedGuildsReconciler(ARMGuildsBridge plugin, RelationFlagServiceImpl flagService, GuildInterner guildInterner,
+                            Executor worker, int regionsPerTick) {
+        this.plugin = plugin;
+        this.flagService = flagService;
+        this.guildInterner = guildInterner;
+        this.worker = worker;
+        this.regionsPerTick = Math.max(1, regionsPerTick);
+    }
+
+    /**
+     * Start a reconcile cycle every intervalTicks (the first one after one interval)
+     */
+    void start(long intervalTicks) {
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::startCycle, intervalTicks, intervalTicks);
+    }
+
+    private void startCycle() {
+        if (regions != null) {
+            return; // Previous cycle still walking
+        }
+
+        regions = plugin.getGuildRegionRepository().getAllShopRegions();
+        cursor = 0;
+        cycleDrifted = 0;
+        cycleStarted = System.nanoTime();
+        if (regions.isEmpty()) {
+            regions = null;
+            return;
+        }
+        computeExpected();
+    }
+
+    /**
+     * Look up the enemies of every guild owning a shop in this cycle (worker thread)
+     */
+    private void computeExpected() {
+        BitSet owners = new BitSet();
+        for (ShopRegionInfo info : regions) {
+            owners.set(guildInterner.intern(info.getGuildId()));
+        }
+
+        long epoch = flagService.getRelationEpoch();
+        computing = true;
+        try {
+            CompletableFuture.supplyAsync(() -> {
+                Int2ObjectMap<BitSet> enemiesByGuild = new Int2ObjectOpenHashMap<>(owners.cardinality());
+                for (int owner = owners.nextSetBit(0); owner >= 0; owner = owners.nextSetBit(owner + 1)) {
+                    BitSet enemies = flagService.enemyGuilds(guildInterner.guildAt(owner));
+                    if (enemies != null) {
+                        enemiesByGuild.put(owner, enemies);
+                    }
+                }
+                return enemiesByGuild;
+            }, worker).whenCompleteAsync((enemiesByGuild, error) -> {
+                computing = false;
+                if (error != null) {
+                    plugin.getLogger().warning("Failed to look up guild relations for reconciling: " + error.getMessage());
+                    error.printStackTrace();
+                    endCycle();
+                    return;
+                }
+                expected = enemiesByGuild;
+                expectedEpoch = epoch;
+                if (walkTask == null) {
+                    walkTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::walk, 0L, 1L);
+                }
+            }, plugin.getMainThreadExecutor());
+        } catch (RejectedExecutionException e) {
+            // Relation worker stopped - plugin is disabling
+            computing = false;
+            endCycle();
+        }
+    }
+
+    private void walk() {
+        if (computing) {
+            return;
+        }
+        if (flagService.getRelationEpoch() != expectedEpoch) {
+            // A relation changed since the enemies were looked up; don't "repair" it back
+            computeExpected();
+            return;
+        }
+
+        int end = Math.min(regions.size(), cursor + regionsPerTick);
+        for (; cursor < end; cursor++) {
+            ShopRegionInfo info = regions.get(cursor);
+            BitSet enemies = expected.get(guildInterner.indexOf(info.getGuildId()));
+            if (enemies == null) {
+                continue; // Owner guild not found - left to the disband cleanup
+            }
+
+            BitSet before = flagService.reconcileRegion(info.getRegionId(), info.getWorldName(), enemies);
+            regionsChecked.increment();
+            if (before == null || before.equals(enemies)) {
+                continue; // Region gone or in sync
+            }
+
+            BitSet added = (BitSet) enemies.clone();
+            added.andNot(before);
+            BitSet removed = (BitSet) before.clone();
+            removed.andNot(enemies);
+            entriesAdded.add(added.cardinality());
+            entriesRemoved.add(removed.cardinality());
+            regionsDrifted.increment();
+            cycleDrifted++;
+            plugin.getLogger().fine("Repaired blocked-guilds of " + info.getRegionId() + ": +" +
+                added.cardinality() + " -" + removed.cardinality());
+        }
+
+        if (cursor >= regions.size()) {
+            long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - cycleStarted);
+            String summary = "Reconciled blocked guilds of " + regions.size() + " shop regions in " + elapsed +
+                "s, " + cycleDrifted + " repaired";
+            if (cycleDrifted > 0) {
+                plugin.getLogger().info(summary);
+            } else {
+                plugin.getLogger().fine(summary);
+            }
+            cycles.increment();
+            endCycle();
+        }
+    }
+
+    private void endCycle() {
+        if (walkTask != null) {
+            walkTask.cancel();
+            walkTask = null;
+        }
+        regions = null;
+        expected = null;
+    }
+
+    long getCycles() {
+        return cycles.sum();
+    }
+
+    long getRegionsChecked() {
+        return regionsChecked.sum();
+    }
+
+    long getRegionsDrifted() {
+        return regionsDrifted.sum();
+    }
+
+    long getEntriesAdded() {
+        return entriesAdded.sum();
+    }
+
+    long getEntriesRemoved() {
+        return entriesRemoved.sum();
+    }
+}
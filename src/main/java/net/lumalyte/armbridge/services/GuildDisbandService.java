@@ -0,0 +1,33 @@
+package net.lumalyte.armbridge.services;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for cleaning up everything the bridge keeps for a disbanded guild
+ */
+public interface GuildDisbandService {
+
+    /**
+     * Remove a disbanded guild's shop regions, ItemShop registrations, cached lookups and
+     * blocked-guilds flag entries
+     *
+     * Database rows are removed in one transaction off the main thread; WorldGuard flags are then
+     * swept on the main thread a few regions per tick, so large guilds don't stall the server.
+     *
+     * @param guildId Disbanded guild UUID
+     * @param requester Receives progress messages in addition to the console (may be null)
+     * @return Future completing with the number of region flags changed once the sweep is done
+     */
+    CompletableFuture<Integer> cleanupGuild(UUID guildId, CommandSender requester);
+
+    /**
+     * Check if a cleanup is currently running for a guild
+     *
+     * @param guildId Guild UUID
+     * @return true if a cleanup is in progress
+     */
+    boolean isCleanupRunning(UUID guildId);
+}
@@ -0,0 +1,170 @@
+package net.lumalyte.armbridge.services;
+
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.storage.ShopRegionInfo;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of GuildDisbandService
+ *
+ * The pipeline has three stages:
+ * 1. one database transaction removes the guild's shop regions and ItemShops (storage thread)
+ * 2. in-memory caches are dropped (main thread)
+ * 3. every shop region's blocked-guilds flag is swept within a per-tick time budget (main thread)
+ */
+public class GuildDisbandServiceImpl implements GuildDisbandService {
+
+    // Report sweep progress every 5 seconds
+    private static final int PROGRESS_INTERVAL_TICKS = 100;
+
+    private final ARMGuildsBridge plugin;
+    private final Logger logger;
+    private final long tickBudgetNanos;
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+
+    public GuildDisbandServiceImpl(ARMGuildsBridge plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.tickBudgetNanos = TimeUnit.MICROSECONDS.toNanos(
+            Math.max(100L, (long) (plugin.getConfig().getDouble("guild-disband.tick-budget-ms", 2.0) * 1000)));
+    }
+
+    @Override
+    public CompletableFuture<Integer> cleanupGuild(UUID guildId, CommandSender requester) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (!running.add(guildId)) {
+            result.completeExceptionally(new IllegalStateException("Cleanup already running for guild " + guildId));
+            return result;
+        }
+
+        long started = System.nanoTime();
+        report(requester, "Cleaning up disbanded guild " + guildId + "...");
+
+        plugin.getAsyncGuildRegionRepository().removeGuildData(guildId)
+            .thenAcceptAsync(removed -> {
+                if (removed == null) {
+                    throw new IllegalStateException("database cleanup failed");
+                }
+
+                // Drop cached lookups that could still point at the guild
+                plugin.getItemShopGuildService().invalidateGuild(guildId);
+                plugin.getGuildMembershipCache().invalidateGuild(guildId);
+                plugin.getRankPermissionCache().invalidateGuild(guildId);
+                Set<String> worlds = new HashSet<>();
+                for (ShopRegionInfo info : removed) {
+                    if (worlds.add(info.getWorldName())) {
+                        plugin.getShopRegionResolver().invalidateWorld(info.getWorldName());
+                    }
+                }
+
+                report(requester, "Removed " + removed.size() + " shop regions and ItemShops of guild " +
+                    guildId + " in " + elapsedMs(started) + "ms; sweeping region flags");
+
+                // The guild's own regions first (flag cleared), then every other shop region
+                List<ShopRegionInfo> targets = new ArrayList<>(removed);
+                targets.addAll(plugin.getGuildRegionRepository().getAllShopRegions());
+                new FlagSweep(guildId, requester, targets, removed.size(), started, result)
+                    .runTaskTimer(plugin, 1L, 1L);
+            }, plugin.getMainThreadExecutor())
+            .exceptionally(error -> {
+                running.remove(guildId);
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                logger.severe("Cleanup of disbanded guild " + guildId + " failed: " + cause.getMessage());
+                if (requester != null) {
+                    plugin.getMainThreadExecutor().execute(() ->
+                        requester.sendMessage("§cCleanup of guild " + guildId + " failed: " + cause.getMessage()));
+                }
+                result.completeExceptionally(cause);
+                return null;
+            });
+
+        return result;
+    }
+
+    @Override
+    public boolean isCleanupRunning(UUID guildId) {
+        return running.contains(guildId);
+    }
+
+    private void report(CommandSender requester, String message) {
+        logger.info(message);
+        if (requester != null) {
+            requester.sendMessage("§e" + message);
+        }
+    }
+
+    private long elapsedMs(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Removes the guild from blocked-guilds flags, as many regions per tick as fit in the budget
+     */
+    private class FlagSweep extends BukkitRunnable {
+
+        private final UUID guildId;
+        private final CommandSender requester;
+        private final List<ShopRegionInfo> targets;
+        private final int ownedCount;
+        private final long started;
+        private final CompletableFuture<Integer> result;
+        private int next = 0;
+        private int changed = 0;
+        private int ticks = 0;
+
+        FlagSweep(UUID guildId, CommandSender requester, List<ShopRegionInfo> targets, int ownedCount,
+                  long started, CompletableFuture<Integer> result) {
+            this.guildId = guildId;
+            this.requester = requester;
+            this.targets = targets;
+            this.ownedCount = ownedCount;
+            this.started = started;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            long deadline = System.nanoTime() + tickBudgetNanos;
+            ticks++;
+
+            // Always make progress, even if a single region takes longer than the budget
+            do {
+                if (next >= targets.size()) {
+                    finish();
+                    return;
+                }
+                ShopRegionInfo info = targets.get(next);
+                if (plugin.getRelationFlagService().purgeGuildFromRegion(
+                        info.getRegionId(), info.getWorldName(), guildId, next < ownedCount)) {
+                    changed++;
+                }
+                next++;
+            } while (System.nanoTime() < deadline);
+
+            if (ticks % PROGRESS_INTERVAL_TICKS == 0) {
+                report(requester, "Disband cleanup of guild " + guildId + ": swept " + next + "/" +
+                    targets.size() + " regions (" + elapsedMs(started) + "ms)");
+            }
+        }
+
+        private void finish() {
+            cancel();
+            running.remove(guildId);
+            report(requester, "Finished cleanup of disbanded guild " + guildId + ": " + ownedCount +
+                " shop regions removed, " + changed + " of " + targets.size() + " region flags updated in " +
+                elapsedMs(started) + "ms (" + ticks + " ticks)");
+            result.complete(changed);
+        }
+    }
+}
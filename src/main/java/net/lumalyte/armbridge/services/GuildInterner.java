@@ -0,0 +1,75 @@
+package net.lumalyte.armbridge.services;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps guild UUIDs to dense int indices (0, 1, 2, ...) for the lifetime of the plugin
+ *
+ * Indices are never reused or removed, so they can key bitsets and primitive collections.
+ * Lookups are lock-free; interning a new guild takes a lock.
+ */
+public class GuildInterner {
+
+    private final Map<UUID, Integer> indices = new ConcurrentHashMap<>();
+    private volatile UUID[] guilds = new UUID[64];
+    private int size = 0;
+
+    /**
+     * Get the index of a guild, assigning the next free index if it has none yet
+     *
+     * @param guildId Guild UUID
+     * @return Dense guild index
+     */
+    public int intern(UUID guildId) {
+        Integer index = indices.get(guildId);
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+            index = indices.get(guildId);
+            if (index != null) {
+                return index;
+            }
+
+            if (size == guilds.length) {
+                guilds = Arrays.copyOf(guilds, size * 2);
+            }
+            guilds[size] = guildId;
+            indices.put(guildId, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Get the index of a guild without assigning one
+     *
+     * @param guildId Guild UUID
+     * @return Dense guild index, or -1 if the guild was never interned
+     */
+    public int indexOf(UUID guildId) {
+        Integer index = indices.get(guildId);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Get the guild at an index
+     *
+     * @param index Dense guild index
+     * @return Guild UUID, or null if no guild has this index
+     */
+    public UUID guildAt(int index) {
+        UUID[] snapshot = guilds;
+        return index >= 0 && index < snapshot.length ? snapshot[index] : null;
+    }
+
+    /**
+     * @return Number of interned guilds (indices are 0 to size - 1)
+     */
+    public int size() {
+        return indices.size();
+    }
+}
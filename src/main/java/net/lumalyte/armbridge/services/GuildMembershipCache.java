@@ -0,0 +1,70 @@
+package net.lumalyte.armbridge.services;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Cache of the guilds each online player belongs to
+ *
+ * Hot listeners read memberships from here instead of asking LumaGuilds on every event.
+ * Snapshots are immutable and may be shared between callers.
+ */
+public interface GuildMembershipCache {
+
+    /**
+     * Get the guilds a player belongs to
+     * Online players are answered from the cache (loaded on first use if needed).
+     *
+     * @param playerId Player UUID
+     * @return Immutable set of guild UUIDs in LumaGuilds' order (empty if the player is in no guild)
+     */
+    Set<UUID> getPlayerGuilds(UUID playerId);
+
+    /**
+     * Load a player's memberships into the cache (e.g. on join)
+     *
+     * @param playerId Player UUID
+     */
+    void load(UUID playerId);
+
+    /**
+     * Forget a player's memberships so they are reloaded on next use (e.g. after joining or leaving a guild)
+     *
+     * @param playerId Player UUID
+     */
+    void invalidatePlayer(UUID playerId);
+
+    /**
+     * Forget the memberships of every cached member of a guild (e.g. after it was disbanded)
+     *
+     * @param guildId Guild UUID
+     */
+    void invalidateGuild(UUID guildId);
+
+    /**
+     * Forget every cached membership
+     */
+    void invalidateAll();
+
+    /**
+     * Drop a player from the cache (e.g. on quit)
+     *
+     * @param playerId Player UUID
+     */
+    void evict(UUID playerId);
+
+    /**
+     * @return Number of lookups answered from the cache
+     */
+    long getCacheHits();
+
+    /**
+     * @return Number of lookups that had to ask LumaGuilds
+     */
+    long getCacheMisses();
+
+    /**
+     * @return Number of players currently cached
+     */
+    int getCachedPlayerCount();
+}
@@ -0,0 +1,134 @@
+package net.lumalyte.armbridge.services;
+
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.lg.application.services.MemberService;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of GuildMembershipCache backed by LumaGuilds' MemberService
+ *
+ * Only online players are cached: they are loaded on join, evicted on quit and invalidated by LumaGuilds
+ * membership events. Snapshots also expire after a maximum age, so a membership change whose event was
+ * missed is picked up eventually.
+ *
+ * Every invalidation bumps a generation counter; a load only publishes its snapshot if no invalidation
+ * happened while it was reading, so a slow load never overwrites a newer membership change.
+ */
+public class GuildMembershipCacheImpl implements GuildMembershipCache {
+
+    private final ARMGuildsBridge plugin;
+    private final MemberService memberService;
+    private final long maxAgeNanos;
+
+    private final Map<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public GuildMembershipCacheImpl(ARMGuildsBridge plugin) {
+        this.plugin = plugin;
+        this.memberService = plugin.getMemberService();
+        long maxAgeSeconds = plugin.getConfig().getLong("guild-membership.cache.max-age-seconds", 60L);
+        this.maxAgeNanos = maxAgeSeconds > 0 ? TimeUnit.SECONDS.toNanos(maxAgeSeconds) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public Set<UUID> getPlayerGuilds(UUID playerId) {
+        Snapshot snapshot = snapshots.get(playerId);
+        if (snapshot != null && System.nanoTime() - snapshot.loadedAt < maxAgeNanos) {
+            hits.increment();
+            return snapshot.guilds;
+        }
+
+        misses.increment();
+        return loadSnapshot(playerId);
+    }
+
+    @Override
+    public void load(UUID playerId) {
+        loadSnapshot(playerId);
+    }
+
+    @Override
+    public synchronized void invalidatePlayer(UUID playerId) {
+        generation.incrementAndGet();
+        snapshots.remove(playerId);
+    }
+
+    @Override
+    public synchronized void invalidateGuild(UUID guildId) {
+        generation.incrementAndGet();
+        snapshots.values().removeIf(snapshot -> snapshot.guilds.contains(guildId));
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        snapshots.clear();
+    }
+
+    @Override
+    public synchronized void evict(UUID playerId) {
+        generation.incrementAndGet();
+        snapshots.remove(playerId);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public int getCachedPlayerCount() {
+        return snapshots.size();
+    }
+
+    private Set<UUID> loadSnapshot(UUID playerId) {
+        long loadGeneration = generation.get();
+        long loadedAt = System.nanoTime();
+
+        Set<UUID> guilds;
+        try {
+            // Keep LumaGuilds' order - callers pick a player's first guild
+            guilds = Collections.unmodifiableSet(new LinkedHashSet<>(memberService.getPlayerGuilds(playerId)));
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to load guilds of player " + playerId + ": " + e.getMessage());
+            return Set.of(); // Not cached - retried on next lookup
+        }
+
+        // Offline players (e.g. lookups for ARM purchases by offline owners) are not cached
+        if (plugin.getServer().getPlayer(playerId) != null) {
+            Snapshot snapshot = new Snapshot(guilds, loadedAt);
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    snapshots.put(playerId, snapshot);
+                }
+            }
+        }
+        return guilds;
+    }
+
+    private static final class Snapshot {
+        final Set<UUID> guilds;
+        final long loadedAt;
+
+        Snapshot(Set<UUID> guilds, long loadedAt) {
+            this.guilds = guilds;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -21,6 +21,32 @@ public interface GuildShopService {
      */
     boolean registerGuildShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice);
 
+    /**
+     * Take one of a guild's shop slots ahead of a purchase, so the limit holds while payment is taken
+     *
+     * @param guildId Guild UUID
+     * @return true if reserved; false if the guild has reached the shop limit
+     */
+    boolean reserveShopSlot(UUID guildId);
+
+    /**
+     * Give back a slot taken by reserveShopSlot (e.g. when payment failed)
+     *
+     * @param guildId Guild UUID
+     */
+    void releaseShopSlot(UUID guildId);
+
+    /**
+     * Register a shop region into a slot taken by reserveShopSlot (the slot is released on failure)
+     *
+     * @param regionId ARM region ID
+     * @param worldName World name
+     * @param guildId Guild UUID
+     * @param purchasePrice Price paid for the region
+     * @return true if successfully registered
+     */
+    boolean registerReservedShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice);
+
     /**
      * Get the guild ID for a shop region
      *
@@ -25,31 +25,56 @@ public class GuildShopServiceImpl implements GuildShopService {
 
     @Override
     public boolean registerGuildShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice) {
-        // Check if guild has reached max shop limit
-        if (hasReachedShopLimit(guildId)) {
+        // The repository checks the shop limit and registers atomically
+        boolean registered = repository.registerGuildShopRegion(regionId, worldName, guildId, purchasePrice,
+            maxShopsPerGuild);
+
+        if (!registered && hasReachedShopLimit(guildId)) {
             plugin.getLogger().warning("Guild " + guildId + " has reached maximum shop limit (" + maxShopsPerGuild + ")");
             return false;
         }
 
-        boolean registered = repository.registerGuildShopRegion(regionId, worldName, guildId, purchasePrice);
-
         if (registered) {
-            plugin.getLogger().info("Registered shop region " + regionId + " for guild " + guildId);
-
-            // Log transaction
-            repository.logShopTransaction(
-                guildId,
-                regionId,
-                "PURCHASE",
-                purchasePrice,
-                "Shop region purchased",
-                null
-            );
+            onRegistered(regionId, worldName, guildId, purchasePrice);
         }
 
         return registered;
     }
 
+    @Override
+    public boolean reserveShopSlot(UUID guildId) {
+        return repository.reserveShopSlot(guildId, maxShopsPerGuild);
+    }
+
+    @Override
+    public void releaseShopSlot(UUID guildId) {
+        repository.releaseShopSlot(guildId);
+    }
+
+    @Override
+    public boolean registerReservedShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice) {
+        boolean registered = repository.registerReservedShopRegion(regionId, worldName, guildId, purchasePrice);
+        if (registered) {
+            onRegistered(regionId, worldName, guildId, purchasePrice);
+        }
+        return registered;
+    }
+
+    private void onRegistered(String regionId, String worldName, UUID guildId, double purchasePrice) {
+        plugin.getLogger().info("Registered shop region " + regionId + " for guild " + guildId);
+        plugin.getShopRegionResolver().invalidateWorld(worldName);
+
+        // Log transaction
+        repository.logShopTransaction(
+            guildId,
+            regionId,
+            "PURCHASE",
+            purchasePrice,
+            "Shop region purchased",
+            null
+        );
+    }
+
     @Override
     public UUID getGuildForShopRegion(String regionId, String worldName) {
         return repository.getGuildForShopRegion(regionId, worldName);
@@ -67,8 +92,7 @@ public class GuildShopServiceImpl implements GuildShopService {
             return false;
         }
 
-        int currentShopCount = repository.getGuildShopRegions(guildId).size();
-        return currentShopCount >= maxShopsPerGuild;
+        return repository.getGuildShopCount(guildId) >= maxShopsPerGuild;
     }
 
     @Override
@@ -76,6 +100,10 @@ public class GuildShopServiceImpl implements GuildShopService {
         UUID guildId = repository.getGuildForShopRegion(regionId, worldName);
 
         boolean removed = repository.removeGuildShopRegion(regionId, worldName);
+        if (removed) {
+            plugin.getShopRegionResolver().invalidateWorld(worldName);
+            plugin.getRelationFlagService().forgetRegion(regionId, worldName);
+        }
 
         if (removed && guildId != null) {
             plugin.getLogger().info("Removed shop region " + regionId + " from guild " + guildId);
@@ -0,0 +1,277 @@
+package net.lumalyte.armbridge.services;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of guild ItemShops per world and chunk
+ *
+ * A cached chunk holds every guild ItemShop in it, so a position missing from a cached chunk is a
+ * known "no guild" answer; chunks without any guild shop share one empty tombstone map. Shops are stored
+ * as block key -> dense guild index (GuildInterner), so a cached shop costs a long and an int.
+ * Each world keeps its chunks in least-recently-used order and evicts the oldest beyond the size limit.
+ *
+ * Chunks announced by markPending (on chunk load) hold a pending marker until the background load
+ * delivers them; lookups treat a pending chunk as not cached. Unloading the chunk removes the marker,
+ * so a load that finishes after the unload is discarded.
+ *
+ * Every write bumps the world's generation; a chunk loaded from the database is only cached if no
+ * write happened in that world while it was being read, so a slow load never overwrites a newer shop.
+ */
+class ItemShopChunkCache {
+
+    // Returned by get() for positions known to have no guild ItemShop
+    static final UUID NO_GUILD = new UUID(0L, 0L);
+
+    private static final Long2IntMap EMPTY_CHUNK = newChunk(0);
+    private static final Long2IntMap PENDING_CHUNK = newChunk(0);
+
+    private final GuildInterner guildInterner;
+    private final int maxChunksPerWorld;
+    private final Map<String, WorldCache> worlds = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    ItemShopChunkCache(GuildInterner guildInterner, int maxChunksPerWorld) {
+        this.guildInterner = guildInterner;
+        this.maxChunksPerWorld = Math.max(1, maxChunksPerWorld);
+    }
+
+    /**
+     * Pack chunk coordinates into a long
+     */
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Create a chunk map (block key -> guild index) that answers -1 for positions without a guild shop
+     */
+    static Long2IntMap newChunk(int expectedShops) {
+        Long2IntMap chunk = new Long2IntOpenHashMap(expectedShops);
+        chunk.defaultReturnValue(-1);
+        return chunk;
+    }
+
+    /**
+     * Pack a block position into a long (26 bits x, 26 bits z, 12 bits y - the full world border and build height)
+     */
+    static long blockKey(int x, int y, int z) {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
+    }
+
+    /**
+     * Look up a block position
+     *
+     * @return The owning guild, NO_GUILD if the chunk is cached without a guild shop there,
+     *         or null if the chunk is not cached
+     */
+    UUID get(String worldName, int x, int y, int z) {
+        WorldCache world = worlds.get(worldName);
+        if (world != null) {
+            synchronized (world) {
+                Long2IntMap chunk = world.chunks.getAndMoveToLast(chunkKey(x >> 4, z >> 4));
+                if (chunk != null && chunk != PENDING_CHUNK) {
+                    hits.increment();
+                    int guildIndex = chunk.get(blockKey(x, y, z));
+                    return guildIndex >= 0 ? guildInterner.guildAt(guildIndex) : NO_GUILD;
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Current write generation of a world; read it before loading a chunk and pass it to putChunk
+     */
+    long getGeneration(String worldName) {
+        WorldCache world = world(worldName);
+        synchronized (world) {
+            return world.generation;
+        }
+    }
+
+    /**
+     * Announce a loaded chunk whose shops will be delivered by a background load
+     * The loader reads the world generation right before querying the chunk, not here, so writes while
+     * the chunk is queued don't invalidate its load.
+     *
+     * @return false if the chunk is already cached or pending
+     */
+    boolean markPending(String worldName, int chunkX, int chunkZ) {
+        WorldCache world = world(worldName);
+        synchronized (world) {
+            long chunkKey = chunkKey(chunkX, chunkZ);
+            if (world.chunks.containsKey(chunkKey)) {
+                return false;
+            }
+            world.chunks.putAndMoveToLast(chunkKey, PENDING_CHUNK);
+            evictOverflow(world);
+            return true;
+        }
+    }
+
+    /**
+     * Whether a chunk is still waiting for its background load (false once loaded or unloaded)
+     */
+    boolean isPending(String worldName, int chunkX, int chunkZ) {
+        WorldCache world = worlds.get(worldName);
+        if (world == null) {
+            return false;
+        }
+        synchronized (world) {
+            return world.chunks.get(chunkKey(chunkX, chunkZ)) == PENDING_CHUNK;
+        }
+    }
+
+    /**
+     * Cache every guild ItemShop of a chunk (block key -> guild index, see newChunk)
+     *
+     * @param generation World generation read before the chunk was loaded
+     * @param onlyIfPending Only cache the chunk if it is still marked pending (background loads)
+     * @return false if the world changed in the meantime (or the chunk unloaded) and it was not cached
+     */
+    boolean putChunk(String worldName, int chunkX, int chunkZ, Long2IntMap shops, long generation,
+                     boolean onlyIfPending) {
+        WorldCache world = world(worldName);
+        synchronized (world) {
+            if (world.generation != generation) {
+                return false;
+            }
+            if (onlyIfPending && world.chunks.get(chunkKey(chunkX, chunkZ)) != PENDING_CHUNK) {
+                return false;
+            }
+            world.chunks.putAndMoveToLast(chunkKey(chunkX, chunkZ), shops.isEmpty() ? EMPTY_CHUNK : shops);
+            evictOverflow(world);
+            return true;
+        }
+    }
+
+    /**
+     * Record a newly registered guild ItemShop
+     */
+    void put(String worldName, int x, int y, int z, UUID guildId) {
+        WorldCache world = world(worldName);
+        synchronized (world) {
+            world.generation++;
+            long chunkKey = chunkKey(x >> 4, z >> 4);
+            Long2IntMap chunk = world.chunks.get(chunkKey);
+            if (chunk == null || chunk == PENDING_CHUNK) {
+                return; // Picked up when the chunk is loaded
+            }
+            if (chunk == EMPTY_CHUNK) {
+                chunk = newChunk(4);
+                world.chunks.put(chunkKey, chunk);
+            }
+            chunk.put(blockKey(x, y, z), guildInterner.intern(guildId));
+        }
+    }
+
+    /**
+     * Record a removed guild ItemShop
+     */
+    void remove(String worldName, int x, int y, int z) {
+        WorldCache world = world(worldName);
+        synchronized (world) {
+            world.generation++;
+            Long2IntMap chunk = world.chunks.get(chunkKey(x >> 4, z >> 4));
+            if (chunk != null && chunk != EMPTY_CHUNK && chunk != PENDING_CHUNK) {
+                chunk.remove(blockKey(x, y, z));
+            }
+        }
+    }
+
+    /**
+     * Drop a cached chunk (e.g. on chunk unload)
+     */
+    void invalidateChunk(String worldName, int chunkX, int chunkZ) {
+        WorldCache world = worlds.get(worldName);
+        if (world != null) {
+            synchronized (world) {
+                world.chunks.remove(chunkKey(chunkX, chunkZ));
+            }
+        }
+    }
+
+    /**
+     * Drop every cached chunk of a world (e.g. on world unload)
+     */
+    void invalidateWorld(String worldName) {
+        WorldCache world = worlds.get(worldName);
+        if (world != null) {
+            synchronized (world) {
+                world.generation++;
+                world.chunks.clear();
+                world.chunks.trim();
+            }
+        }
+    }
+
+    /**
+     * Forget a guild's shops everywhere (e.g. after it was disbanded)
+     */
+    void invalidateGuild(UUID guildId) {
+        int guildIndex = guildInterner.indexOf(guildId);
+        if (guildIndex < 0) {
+            return; // Never cached
+        }
+
+        for (WorldCache world : worlds.values()) {
+            synchronized (world) {
+                world.generation++;
+                for (Long2IntMap chunk : world.chunks.values()) {
+                    if (chunk != EMPTY_CHUNK && chunk != PENDING_CHUNK) {
+                        chunk.values().removeIf((int index) -> index == guildIndex);
+                    }
+                }
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    int getChunkCount() {
+        int count = 0;
+        for (WorldCache world : worlds.values()) {
+            synchronized (world) {
+                count += world.chunks.size();
+            }
+        }
+        return count;
+    }
+
+    private void evictOverflow(WorldCache world) {
+        while (world.chunks.size() > maxChunksPerWorld) {
+            world.chunks.removeFirst();
+            evictions.increment();
+        }
+    }
+
+    private WorldCache world(String worldName) {
+        return worlds.computeIfAbsent(worldName, w -> new WorldCache());
+    }
+
+    private static final class WorldCache {
+        // chunk key -> block key -> guild index, least recently used first
+        final Long2ObjectLinkedOpenHashMap<Long2IntMap> chunks = new Long2ObjectLinkedOpenHashMap<>();
+        long generation;
+    }
+}
@@ -0,0 +1,241 @@
+package net.lumalyte.armbridge.services;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import net.lumalyte.armbridge.storage.DatabaseConnection;
+import net.lumalyte.armbridge.storage.DatabaseManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Loads guild ItemShops from arm_guild_itemshops into an ItemShopChunkCache, a whole chunk per query
+ *
+ * Chunks announced on chunk load are read by a dedicated loader thread, several chunks per read
+ * connection checkout, so lookups in loaded chunks are answered from memory. The database is only ever
+ * queried on the loader thread: a lookup that gets ahead of the loader moves its chunk to the front of the
+ * queue and waits briefly for it (see awaitChunk).
+ *
+ * The queue is not capped: a request is only created for a chunk that isn't cached or pending yet, so it
+ * holds at most one request per loaded chunk (plus the lookups' front-of-queue copies). Each chunk's world
+ * generation is read right before its query; a chunk whose query raced a write, or whose batch failed, is
+ * queued again rather than left pending.
+ */
+class ItemShopChunkLoader {
+
+    private static final String SELECT_CHUNK = """
+        SELECT x, y, z, guild_id FROM arm_guild_itemshops
+        WHERE world_name = ? AND (x >> 4) = ? AND (z >> 4) = ?
+    """;
+
+    private static final long FAILURE_PAUSE_MS = 1000L;
+
+    private final Logger logger;
+    private final DatabaseManager database;
+    private final ItemShopChunkCache cache;
+    private final GuildInterner guildInterner;
+    private final BlockingDeque<ChunkRequest> queue = new LinkedBlockingDeque<>();
+    // Chunks a lookup is waiting for, so repeated lookups don't queue them again
+    private final Set<ChunkRequest> urgent = ConcurrentHashMap.newKeySet();
+    // Notified after every batch, wakes lookups waiting in awaitChunk
+    private final Object loadSignal = new Object();
+    private final int batchSize;
+    private final Thread loaderThread;
+    private volatile boolean running = true;
+
+    /**
+     * @param logger Plugin logger
+     * @param database Shared database (loads run on its read connections)
+     * @param cache Cache the loaded chunks are delivered to
+     * @param guildInterner Interner for the guild IDs read
+     * @param batchSize Maximum number of chunks loaded per read connection checkout
+     */
+    ItemShopChunkLoader(Logger logger, DatabaseManager database, ItemShopChunkCache cache,
+                        GuildInterner guildInterner, int batchSize) {
+        this.logger = logger;
+        this.database = database;
+        this.cache = cache;
+        this.guildInterner = guildInterner;
+        this.batchSize = Math.max(1, batchSize);
+
+        this.loaderThread = new Thread(this::runLoader, "ARMGuildsBridge-ItemShopLoader");
+        this.loaderThread.setDaemon(true);
+        this.loaderThread.start();
+    }
+
+    /**
+     * Queue a loaded chunk for background loading (no-op if it is already cached or pending)
+     */
+    void enqueue(String worldName, int chunkX, int chunkZ) {
+        if (running && cache.markPending(worldName, chunkX, chunkZ)) {
+            queue.offer(new ChunkRequest(worldName, chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Wait for a chunk that isn't cached yet, moving it to the front of the queue
+     * Never queries the database on the calling thread.
+     *
+     * @param timeoutNanos Longest time to wait
+     * @return true if the chunk is no longer pending (loaded, or unloaded in the meantime); false on timeout
+     */
+    boolean awaitChunk(String worldName, int chunkX, int chunkZ, long timeoutNanos) {
+        if (!running) {
+            return false;
+        }
+        if (!cache.markPending(worldName, chunkX, chunkZ) && !cache.isPending(worldName, chunkX, chunkZ)) {
+            return true; // Loaded in the meantime
+        }
+
+        ChunkRequest request = new ChunkRequest(worldName, chunkX, chunkZ);
+        if (urgent.add(request)) {
+            queue.offerFirst(request);
+        }
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (loadSignal) {
+            while (cache.isPending(worldName, chunkX, chunkZ)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(loadSignal, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop the loader thread; queued chunks are dropped
+     */
+    void close() {
+        running = false;
+        loaderThread.interrupt();
+        try {
+            loaderThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.clear();
+        urgent.clear();
+    }
+
+    private void runLoader() {
+        List<ChunkRequest> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                urgent.removeAll(batch);
+
+                // Chunks that unloaded (or were loaded by an earlier copy of the request) need no query
+                batch.removeIf(request -> !cache.isPending(request.worldName, request.chunkX, request.chunkZ));
+                if (!batch.isEmpty()) {
+                    long[] generations = new long[batch.size()];
+                    List<Long2IntMap> loaded = database.read(conn -> {
+                        List<Long2IntMap> results = new ArrayList<>(batch.size());
+                        for (int i = 0; i < batch.size(); i++) {
+                            ChunkRequest request = batch.get(i);
+                            generations[i] = cache.getGeneration(request.worldName);
+                            results.add(queryChunk(conn, request.worldName, request.chunkX, request.chunkZ));
+                        }
+                        return results;
+                    });
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        ChunkRequest request = batch.get(i);
+                        if (!cache.putChunk(request.worldName, request.chunkX, request.chunkZ, loaded.get(i),
+                                generations[i], true)) {
+                            // Raced a write in that world - load it again next
+                            requeue(request);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException e) {
+                logger.warning("Failed to load guild ItemShops for " + batch.size() + " chunks: " + e.getMessage());
+                batch.forEach(this::requeue);
+                try {
+                    Thread.sleep(FAILURE_PAUSE_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } finally {
+                batch.clear();
+                synchronized (loadSignal) {
+                    loadSignal.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void requeue(ChunkRequest request) {
+        if (cache.isPending(request.worldName, request.chunkX, request.chunkZ)) {
+            queue.offerFirst(request);
+        }
+    }
+
+    private Long2IntMap queryChunk(DatabaseConnection conn, String worldName, int chunkX, int chunkZ)
+            throws SQLException {
+        PreparedStatement stmt = conn.prepare(SELECT_CHUNK);
+        stmt.setString(1, worldName);
+        stmt.setInt(2, chunkX);
+        stmt.setInt(3, chunkZ);
+
+        Long2IntMap chunkShops = ItemShopChunkCache.newChunk(4);
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                chunkShops.put(ItemShopChunkCache.blockKey(rs.getInt("x"), rs.getInt("y"), rs.getInt("z")),
+                    guildInterner.intern(UUID.fromString(rs.getString("guild_id"))));
+            }
+        }
+        return chunkShops;
+    }
+
+    private static final class ChunkRequest {
+        final String worldName;
+        final int chunkX;
+        final int chunkZ;
+
+        ChunkRequest(String worldName, int chunkX, int chunkZ) {
+            this.worldName = worldName;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ChunkRequest)) {
+                return false;
+            }
+            ChunkRequest other = (ChunkRequest) o;
+            return chunkX == other.chunkX && chunkZ == other.chunkZ && worldName.equals(other.worldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(worldName, chunkX, chunkZ);
+        }
+    }
+}
@@ -62,4 +62,61 @@ public interface ItemShopGuildService {
      * @return Player UUID or null
      */
     UUID getItemShopCreator(Location shopLocation);
+
+    /**
+     * Drop cached lookups for a guild whose ItemShops were removed in bulk (e.g. disband)
+     *
+     * @param guildId Guild UUID
+     */
+    void invalidateGuild(UUID guildId);
+
+    /**
+     * Load a chunk's guild ItemShops in the background so lookups there don't touch the database
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X coordinate
+     * @param chunkZ Chunk Z coordinate
+     */
+    void preloadChunk(String worldName, int chunkX, int chunkZ);
+
+    /**
+     * Drop cached ItemShops of an unloaded chunk
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X coordinate
+     * @param chunkZ Chunk Z coordinate
+     */
+    void invalidateChunk(String worldName, int chunkX, int chunkZ);
+
+    /**
+     * Drop cached ItemShops of an unloaded world
+     *
+     * @param worldName World name
+     */
+    void invalidateWorld(String worldName);
+
+    /**
+     * @return Lookups answered from the cache (including cached "not a guild shop")
+     */
+    long getCacheHits();
+
+    /**
+     * @return Lookups that had to query the database
+     */
+    long getCacheMisses();
+
+    /**
+     * @return Chunks evicted because the cache was full
+     */
+    long getCacheEvictions();
+
+    /**
+     * @return Chunks currently cached
+     */
+    int getCachedChunkCount();
+
+    /**
+     * Stop background loading
+     */
+    void close();
 }
@@ -1,64 +1,46 @@
 package net.lumalyte.armbridge.services;
 
 import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.storage.DatabaseManager;
 import org.bukkit.Location;
 
-import java.io.File;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
  * Implementation of ItemShopGuildService using database storage
+ *
+ * Lookups go through a bounded per-chunk cache (ItemShopChunkCache). Chunks are loaded in the background
+ * as the server loads them and dropped when they unload, so lookups in loaded chunks are answered from
+ * memory, including "not a guild shop", and the cache follows the loaded world.
  */
 public class ItemShopGuildServiceImpl implements ItemShopGuildService {
 
     private final ARMGuildsBridge plugin;
     private final Logger logger;
-    private final Map<String, UUID> cache = new HashMap<>(); // location key -> guild ID
-    private Connection connection;
+    private final ItemShopChunkCache cache;
+    private final ItemShopChunkLoader loader;
+    private final DatabaseManager database;
+    private final GuildInterner guildInterner;
+    private final long lookupWaitNanos;
 
-    public ItemShopGuildServiceImpl(ARMGuildsBridge plugin) {
+    public ItemShopGuildServiceImpl(ARMGuildsBridge plugin, DatabaseManager database) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
-        initializeDatabase();
-    }
-
-    private void initializeDatabase() {
-        try {
-            // Use same database as GuildRegionRepository
-            File dataFolder = plugin.getDataFolder();
-            if (!dataFolder.exists()) {
-                dataFolder.mkdirs();
-            }
-
-            String dbPath = new File(dataFolder, "guild_shops.db").getAbsolutePath();
-            String url = "jdbc:sqlite:" + dbPath;
-
-            connection = DriverManager.getConnection(url);
-            logger.info("ItemShopGuildService connected to database");
-
-            // Create table
-            String createTable = "CREATE TABLE IF NOT EXISTS arm_guild_itemshops (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "world_name TEXT NOT NULL," +
-                    "x INTEGER NOT NULL," +
-                    "y INTEGER NOT NULL," +
-                    "z INTEGER NOT NULL," +
-                    "guild_id TEXT NOT NULL," +
-                    "creator_uuid TEXT NOT NULL," +
-                    "created_at INTEGER NOT NULL," +
-                    "UNIQUE(world_name, x, y, z)" +
-                    ")";
-
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute(createTable);
-                logger.info("ItemShop guild tracking table initialized");
-            }
-        } catch (SQLException e) {
-            logger.severe("Failed to initialize ItemShop database: " + e.getMessage());
-            e.printStackTrace();
-        }
+        this.database = database;
+        this.guildInterner = plugin.getGuildInterner();
+        this.cache = new ItemShopChunkCache(guildInterner, plugin.getConfig().getInt("itemshops.cache.max-chunks-per-world", 16384));
+        this.loader = new ItemShopChunkLoader(
+            logger,
+            database,
+            cache,
+            guildInterner,
+            plugin.getConfig().getInt("itemshops.loader.batch-size", 64)
+        );
+        this.lookupWaitNanos = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(0L, plugin.getConfig().getLong("itemshops.loader.lookup-wait-ms", 20L)));
     }
 
     private String locationKey(Location loc) {
@@ -71,20 +53,22 @@ public class ItemShopGuildServiceImpl implements ItemShopGuildService {
                 "(world_name, x, y, z, guild_id, creator_uuid, created_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-
-            stmt.setString(1, shopLocation.getWorld().getName());
-            stmt.setInt(2, shopLocation.getBlockX());
-            stmt.setInt(3, shopLocation.getBlockY());
-            stmt.setInt(4, shopLocation.getBlockZ());
-            stmt.setString(5, guildId.toString());
-            stmt.setString(6, playerUuid.toString());
-            stmt.setLong(7, System.currentTimeMillis());
-
-            stmt.executeUpdate();
-
-            // Update cache
-            cache.put(locationKey(shopLocation), guildId);
+        try {
+            database.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, shopLocation.getWorld().getName());
+                stmt.setInt(2, shopLocation.getBlockX());
+                stmt.setInt(3, shopLocation.getBlockY());
+                stmt.setInt(4, shopLocation.getBlockZ());
+                stmt.setString(5, guildId.toString());
+                stmt.setString(6, playerUuid.toString());
+                stmt.setLong(7, System.currentTimeMillis());
+                return stmt.executeUpdate();
+            });
+
+            // Update cache (chunks that aren't cached yet pick the shop up when they load)
+            cache.put(shopLocation.getWorld().getName(), shopLocation.getBlockX(), shopLocation.getBlockY(),
+                shopLocation.getBlockZ(), guildId);
 
             logger.info("Registered ItemShop at " + locationKey(shopLocation) + " for guild " + guildId);
             return true;
@@ -97,34 +81,22 @@ public class ItemShopGuildServiceImpl implements ItemShopGuildService {
 
     @Override
     public UUID getGuildForItemShop(Location shopLocation) {
-        // Check cache first
-        String key = locationKey(shopLocation);
-        if (cache.containsKey(key)) {
-            return cache.get(key);
-        }
-
-        // Query database
-        String sql = "SELECT guild_id FROM arm_guild_itemshops " +
-                "WHERE world_name = ? AND x = ? AND y = ? AND z = ?";
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-
-            stmt.setString(1, shopLocation.getWorld().getName());
-            stmt.setInt(2, shopLocation.getBlockX());
-            stmt.setInt(3, shopLocation.getBlockY());
-            stmt.setInt(4, shopLocation.getBlockZ());
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                UUID guildId = UUID.fromString(rs.getString("guild_id"));
-                cache.put(key, guildId);
-                return guildId;
+        String worldName = shopLocation.getWorld().getName();
+        int x = shopLocation.getBlockX();
+        int y = shopLocation.getBlockY();
+        int z = shopLocation.getBlockZ();
+
+        UUID guildId = cache.get(worldName, x, y, z);
+        if (guildId == null) {
+            // Not loaded yet (lookup got ahead of the loader) - have the loader fetch the chunk next and wait
+            // briefly; this thread never queries the database
+            if (!loader.awaitChunk(worldName, x >> 4, z >> 4, lookupWaitNanos)) {
+                return null; // Still loading - answered as "not a guild shop" this time
             }
-        } catch (SQLException e) {
-            logger.warning("Failed to query guild ItemShop: " + e.getMessage());
+            guildId = cache.get(worldName, x, y, z);
         }
 
-        return null;
+        return guildId == null || guildId == ItemShopChunkCache.NO_GUILD ? null : guildId;
     }
 
     @Override
@@ -138,22 +110,26 @@ public class ItemShopGuildServiceImpl implements ItemShopGuildService {
 
         String sql = "SELECT world_name, x, y, z FROM arm_guild_itemshops WHERE guild_id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-
-            stmt.setString(1, guildId.toString());
-
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                String worldName = rs.getString("world_name");
-                int x = rs.getInt("x");
-                int y = rs.getInt("y");
-                int z = rs.getInt("z");
-
-                org.bukkit.World world = org.bukkit.Bukkit.getWorld(worldName);
-                if (world != null) {
-                    shops.add(new Location(world, x, y, z));
+        try {
+            database.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, guildId.toString());
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String worldName = rs.getString("world_name");
+                        int x = rs.getInt("x");
+                        int y = rs.getInt("y");
+                        int z = rs.getInt("z");
+
+                        org.bukkit.World world = org.bukkit.Bukkit.getWorld(worldName);
+                        if (world != null) {
+                            shops.add(new Location(world, x, y, z));
+                        }
+                    }
                 }
-            }
+                return null;
+            });
         } catch (SQLException e) {
             logger.warning("Failed to get guild ItemShops: " + e.getMessage());
         }
@@ -166,17 +142,19 @@ public class ItemShopGuildServiceImpl implements ItemShopGuildService {
         String sql = "DELETE FROM arm_guild_itemshops " +
                 "WHERE world_name = ? AND x = ? AND y = ? AND z = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-
-            stmt.setString(1, shopLocation.getWorld().getName());
-            stmt.setInt(2, shopLocation.getBlockX());
-            stmt.setInt(3, shopLocation.getBlockY());
-            stmt.setInt(4, shopLocation.getBlockZ());
-
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            int rowsAffected = database.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, shopLocation.getWorld().getName());
+                stmt.setInt(2, shopLocation.getBlockX());
+                stmt.setInt(3, shopLocation.getBlockY());
+                stmt.setInt(4, shopLocation.getBlockZ());
+                return stmt.executeUpdate();
+            });
 
             // Clear cache
-            cache.remove(locationKey(shopLocation));
+            cache.remove(shopLocation.getWorld().getName(), shopLocation.getBlockX(), shopLocation.getBlockY(),
+                shopLocation.getBlockZ());
 
             logger.info("Removed guild ItemShop at " + locationKey(shopLocation));
             return rowsAffected > 0;
@@ -192,21 +170,67 @@ public class ItemShopGuildServiceImpl implements ItemShopGuildService {
         String sql = "SELECT creator_uuid FROM arm_guild_itemshops " +
                 "WHERE world_name = ? AND x = ? AND y = ? AND z = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-
-            stmt.setString(1, shopLocation.getWorld().getName());
-            stmt.setInt(2, shopLocation.getBlockX());
-            stmt.setInt(3, shopLocation.getBlockY());
-            stmt.setInt(4, shopLocation.getBlockZ());
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return UUID.fromString(rs.getString("creator_uuid"));
-            }
+        try {
+            return database.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, shopLocation.getWorld().getName());
+                stmt.setInt(2, shopLocation.getBlockX());
+                stmt.setInt(3, shopLocation.getBlockY());
+                stmt.setInt(4, shopLocation.getBlockZ());
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? UUID.fromString(rs.getString("creator_uuid")) : null;
+                }
+            });
         } catch (SQLException e) {
             logger.warning("Failed to query ItemShop creator: " + e.getMessage());
         }
 
         return null;
     }
+
+    @Override
+    public void invalidateGuild(UUID guildId) {
+        cache.invalidateGuild(guildId);
+    }
+
+    @Override
+    public void preloadChunk(String worldName, int chunkX, int chunkZ) {
+        loader.enqueue(worldName, chunkX, chunkZ);
+    }
+
+    @Override
+    public void invalidateChunk(String worldName, int chunkX, int chunkZ) {
+        cache.invalidateChunk(worldName, chunkX, chunkZ);
+    }
+
+    @Override
+    public void invalidateWorld(String worldName) {
+        cache.invalidateWorld(worldName);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return cache.getEvictions();
+    }
+
+    @Override
+    public int getCachedChunkCount() {
+        return cache.getChunkCount();
+    }
+
+    @Override
+    public void close() {
+        loader.close();
+    }
 }
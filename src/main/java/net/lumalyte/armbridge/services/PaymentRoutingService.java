@@ -29,6 +29,18 @@ public interface PaymentRoutingService {
      */
     boolean depositToGuild(UUID guildId, double amount, String reason);
 
+    /**
+     * Return a shop purchase payment to the guild vault (e.g. when the purchase could not be completed)
+     * Logged as a REFUND transaction of the region, not as shop income.
+     *
+     * @param guildId Guild UUID
+     * @param regionId ARM region ID the payment was for
+     * @param amount Amount to refund
+     * @param reason Transaction description
+     * @return true if successful
+     */
+    boolean refundToGuild(UUID guildId, String regionId, double amount, String reason);
+
     /**
      * Result wrapper for withdrawal operations
      */
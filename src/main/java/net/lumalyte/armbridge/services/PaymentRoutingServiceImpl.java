@@ -74,6 +74,43 @@ public class PaymentRoutingServiceImpl implements PaymentRoutingService {
 
     @Override
     public boolean depositToGuild(UUID guildId, double amount, String reason) {
+        if (!deposit(guildId, amount, reason)) {
+            return false;
+        }
+
+        // Log transaction
+        repository.logShopTransaction(
+            guildId,
+            "shop_income",
+            "INCOME",
+            amount,
+            reason,
+            null
+        );
+        return true;
+    }
+
+    @Override
+    public boolean refundToGuild(UUID guildId, String regionId, double amount, String reason) {
+        if (!deposit(guildId, amount, reason)) {
+            return false;
+        }
+
+        repository.logShopTransaction(
+            guildId,
+            regionId,
+            "REFUND",
+            amount,
+            reason,
+            null
+        );
+        return true;
+    }
+
+    /**
+     * Put money into a guild vault without logging a shop transaction
+     */
+    private boolean deposit(UUID guildId, double amount, String reason) {
         try {
             // Get guild
             Guild guild = plugin.getGuildService().getGuild(guildId);
@@ -92,17 +129,6 @@ public class PaymentRoutingServiceImpl implements PaymentRoutingService {
 
                 plugin.getLogger().info("Deposited " + amount + " to guild " + guild.getName() +
                     " for: " + reason + " (new balance: " + newBalance + ")");
-
-                // Log transaction
-                repository.logShopTransaction(
-                    guildId,
-                    "shop_income",
-                    "INCOME",
-                    amount,
-                    reason,
-                    null
-                );
-
                 return true;
             } else if (result instanceof VaultResult.Failure) {
                 VaultResult.Failure failure = (VaultResult.Failure) result;
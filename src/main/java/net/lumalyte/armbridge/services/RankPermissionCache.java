@@ -0,0 +1,59 @@
+package net.lumalyte.armbridge.services;
+
+import net.lumalyte.lg.domain.entities.RankPermission;
+
+import java.util.UUID;
+
+/**
+ * Cache of each online player's rank permissions per guild, as a bitmask of RankPermission ordinals
+ *
+ * Shop permission checks become a single bit test instead of a rank lookup per click.
+ */
+public interface RankPermissionCache {
+
+    /**
+     * Check if a player's rank in a guild grants a permission
+     *
+     * @param playerId Player UUID
+     * @param guildId Guild UUID
+     * @param permission Permission to check
+     * @return true if granted (false if the player has no rank in the guild)
+     */
+    boolean hasPermission(UUID playerId, UUID guildId, RankPermission permission);
+
+    /**
+     * Forget a player's permissions in every guild (e.g. after their rank changed)
+     *
+     * @param playerId Player UUID
+     */
+    void invalidatePlayer(UUID playerId);
+
+    /**
+     * Forget every cached player's permissions in a guild (e.g. after a rank's permissions changed)
+     *
+     * @param guildId Guild UUID
+     */
+    void invalidateGuild(UUID guildId);
+
+    /**
+     * Forget every cached permission
+     */
+    void invalidateAll();
+
+    /**
+     * Drop a player from the cache (e.g. on quit)
+     *
+     * @param playerId Player UUID
+     */
+    void evict(UUID playerId);
+
+    /**
+     * @return Number of checks answered from the cache
+     */
+    long getCacheHits();
+
+    /**
+     * @return Number of checks that had to look up the rank
+     */
+    long getCacheMisses();
+}
@@ -0,0 +1,176 @@
+package net.lumalyte.armbridge.services;
+
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.lg.application.services.RankService;
+import net.lumalyte.lg.domain.entities.Rank;
+import net.lumalyte.lg.domain.entities.RankPermission;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of RankPermissionCache backed by LumaGuilds' RankService
+ *
+ * Each online player has an immutable guild index (GuildInterner) -> permission mask map, replaced on
+ * every change. Bit n of a mask is the RankPermission with ordinal n; permissions beyond the 63rd are
+ * checked against the rank directly. A player without a rank in a guild is cached as an empty mask.
+ *
+ * Players are invalidated by rank and membership events, evicted on quit, and their masks expire after
+ * a maximum age in case an event was missed. As in GuildMembershipCacheImpl, a load only publishes its
+ * mask if no invalidation happened while it was reading.
+ */
+public class RankPermissionCacheImpl implements RankPermissionCache {
+
+    // Returned by the mask maps for guilds that aren't cached (bit 63 is never used by a mask)
+    private static final long NOT_CACHED = -1L;
+    private static final int MAX_CACHED_ORDINAL = 62;
+
+    private final ARMGuildsBridge plugin;
+    private final RankService rankService;
+    private final GuildInterner guildInterner;
+    private final long maxAgeNanos;
+
+    private final Map<UUID, PlayerMasks> players = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public RankPermissionCacheImpl(ARMGuildsBridge plugin) {
+        this.plugin = plugin;
+        this.rankService = plugin.getRankService();
+        this.guildInterner = plugin.getGuildInterner();
+        long maxAgeSeconds = plugin.getConfig().getLong("rank-permissions.cache.max-age-seconds", 60L);
+        this.maxAgeNanos = maxAgeSeconds > 0 ? TimeUnit.SECONDS.toNanos(maxAgeSeconds) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean hasPermission(UUID playerId, UUID guildId, RankPermission permission) {
+        if (permission.ordinal() > MAX_CACHED_ORDINAL) {
+            Rank rank = rankService.getPlayerRank(playerId, guildId);
+            return rank != null && rank.getPermissions().contains(permission);
+        }
+
+        int guildIndex = guildInterner.intern(guildId);
+        long mask = NOT_CACHED;
+        PlayerMasks cached = players.get(playerId);
+        if (cached != null && System.nanoTime() - cached.createdAt < maxAgeNanos) {
+            mask = cached.masks.get(guildIndex);
+        }
+
+        if (mask == NOT_CACHED) {
+            misses.increment();
+            mask = loadMask(playerId, guildId, guildIndex);
+        } else {
+            hits.increment();
+        }
+        return (mask & (1L << permission.ordinal())) != 0;
+    }
+
+    @Override
+    public synchronized void invalidatePlayer(UUID playerId) {
+        generation.incrementAndGet();
+        players.remove(playerId);
+    }
+
+    @Override
+    public synchronized void invalidateGuild(UUID guildId) {
+        generation.incrementAndGet();
+        int guildIndex = guildInterner.indexOf(guildId);
+        if (guildIndex < 0) {
+            return; // Never cached
+        }
+        players.replaceAll((playerId, cached) -> cached.masks.containsKey(guildIndex)
+            ? cached.without(guildIndex) : cached);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        players.clear();
+    }
+
+    @Override
+    public synchronized void evict(UUID playerId) {
+        generation.incrementAndGet();
+        players.remove(playerId);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
+    private long loadMask(UUID playerId, UUID guildId, int guildIndex) {
+        long loadGeneration = generation.get();
+
+        long mask = 0L;
+        Rank rank = rankService.getPlayerRank(playerId, guildId);
+        if (rank != null) {
+            for (RankPermission permission : rank.getPermissions()) {
+                if (permission.ordinal() <= MAX_CACHED_ORDINAL) {
+                    mask |= 1L << permission.ordinal();
+                }
+            }
+        }
+
+        // Offline players are not cached
+        if (plugin.getServer().getPlayer(playerId) != null) {
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    PlayerMasks cached = players.get(playerId);
+                    if (cached == null || System.nanoTime() - cached.createdAt >= maxAgeNanos) {
+                        cached = new PlayerMasks(System.nanoTime());
+                    }
+                    players.put(playerId, cached.with(guildIndex, mask));
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Immutable guild index -> permission mask map of one player
+     */
+    private static final class PlayerMasks {
+        final Int2LongMap masks;
+        final long createdAt;
+
+        PlayerMasks(long createdAt) {
+            this(newMasks(null), createdAt);
+        }
+
+        private PlayerMasks(Int2LongMap masks, long createdAt) {
+            this.masks = masks;
+            this.createdAt = createdAt;
+        }
+
+        PlayerMasks with(int guildIndex, long mask) {
+            Int2LongMap copy = newMasks(masks);
+            copy.put(guildIndex, mask);
+            return new PlayerMasks(copy, createdAt);
+        }
+
+        PlayerMasks without(int guildIndex) {
+            Int2LongMap copy = newMasks(masks);
+            copy.remove(guildIndex);
+            return new PlayerMasks(copy, createdAt);
+        }
+
+        private static Int2LongMap newMasks(Int2LongMap source) {
+            Int2LongMap copy = source != null ? new Int2LongOpenHashMap(source) : new Int2LongOpenHashMap(2);
+            copy.defaultReturnValue(NOT_CACHED);
+            return copy;
+        }
+    }
+}
@@ -11,6 +11,7 @@ public interface RelationFlagService {
 
     /**
      * Update WorldGuard flags for all shop regions when guild relation changes
+     * Runs asynchronously, exactly like queueRelationChange.
      *
      * @param guild1 First guild UUID
      * @param guild2 Second guild UUID
@@ -19,7 +20,19 @@ public interface RelationFlagService {
     void updateRegionFlagsForRelation(UUID guild1, UUID guild2, RelationType newRelationType);
 
     /**
-     * Update flags for a specific shop region
+     * Queue a relation change; queued changes are merged per guild pair (only the latest relation counts)
+     * and computed on a worker thread; only the flags that change are written, on the main thread in
+     * tick-budgeted batches, with one flag write per affected region
+     *
+     * @param guild1 First guild UUID
+     * @param guild2 Second guild UUID
+     * @param newRelationType New relation type between guilds
+     */
+    void queueRelationChange(UUID guild1, UUID guild2, RelationType newRelationType);
+
+    /**
+     * Block every enemy of the owner guild from a shop region
+     * Relations are looked up on a worker thread; the flag is written on the main thread afterwards.
      *
      * @param regionId ARM region ID
      * @param worldName World name
@@ -54,4 +67,54 @@ public interface RelationFlagService {
      * @return true if blocked
      */
     boolean isGuildBlockedFromRegion(String regionId, String worldName, UUID guildId);
+
+    /**
+     * Drop a region's cached blocked guilds (e.g. after it stopped being a guild shop)
+     *
+     * @param regionId ARM region ID
+     * @param worldName World name
+     */
+    void forgetRegion(String regionId, String worldName);
+
+    /**
+     * Remove a disbanded guild from a shop region's flags
+     * Runs even when enemy blocking is disabled, so no stale entries are left behind.
+     *
+     * @param regionId ARM region ID
+     * @param worldName World name
+     * @param guildId Disbanded guild
+     * @param ownedByGuild Whether the region was the disbanded guild's shop (its flag is cleared entirely)
+     * @return true if the region's flag was changed
+     */
+    boolean purgeGuildFromRegion(String regionId, String worldName, UUID guildId, boolean ownedByGuild);
+
+    /**
+     * @return Completed reconcile cycles (every shop region checked against the ENEMY relations)
+     */
+    long getReconcileCycles();
+
+    /**
+     * @return Shop regions checked by the reconciler
+     */
+    long getReconciledRegions();
+
+    /**
+     * @return Shop regions whose blocked-guilds flag had drifted and was repaired
+     */
+    long getDriftedRegions();
+
+    /**
+     * @return Enemy guilds missing from flags that the reconciler added
+     */
+    long getDriftEntriesAdded();
+
+    /**
+     * @return Stale guilds in flags that the reconciler removed
+     */
+    long getDriftEntriesRemoved();
+
+    /**
+     * Stop the relation worker thread; changes still being computed are dropped
+     */
+    void close();
 }
@@ -10,19 +10,48 @@ import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
 import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.storage.ShopRegionInfo;
 import net.lumalyte.lg.domain.entities.Guild;
 import net.lumalyte.lg.domain.entities.RelationType;
+import org.bukkit.World;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation of RelationFlagService
  * Manages WorldGuard flags based on guild relations
+ *
+ * Blocked guilds are kept in memory as one bitset of dense guild indices (GuildInterner) per shop region.
+ * The blocked-guilds flag is parsed once per region when first seen and afterwards only written, as a
+ * persisted mirror of the matrix.
+ *
+ * Relation changes are computed on a worker thread (region grouping, relation lookups, diffs against the
+ * matrix) and only the resulting flag writes run on the main thread. A background reconciler
+ * (BlockedGuildsReconciler) repairs flags that drifted from the actual ENEMY relations.
  */
 public class RelationFlagServiceImpl implements RelationFlagService {
 
     private final ARMGuildsBridge plugin;
     private final boolean enemyBlockingEnabled;
+    private final GuildInterner guildInterner;
+
+    // world name -> region ID -> blocked guild indices; the WorldGuard flag is a persisted mirror of this.
+    // Sets are replaced, never modified, so readers always see a complete set.
+    private final Map<String, Map<String, BitSet>> blockedMatrix = new ConcurrentHashMap<>();
+
+    // Compute phase of relation updates (repository and relation reads); flags are written on the main thread
+    private final ExecutorService relationWorker;
+    private final RelationUpdateBatcher relationUpdateBatcher;
+    private final BlockedGuildsReconciler reconciler;
+    // Bumped on every relation change, so the reconciler can tell when its enemy lookups are stale
+    private final AtomicLong relationEpoch = new AtomicLong();
 
     // Custom WorldGuard flag to store comma-separated list of blocked guild UUIDs
     public static StringFlag BLOCKED_GUILDS_FLAG;
@@ -30,9 +59,27 @@ public class RelationFlagServiceImpl implements RelationFlagService {
     public RelationFlagServiceImpl(ARMGuildsBridge plugin) {
         this.plugin = plugin;
         this.enemyBlockingEnabled = plugin.getConfig().getBoolean("enemy-blocking.enabled", true);
+        this.guildInterner = plugin.getGuildInterner();
+        this.relationWorker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ARMGuildsBridge-RelationWorker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.relationUpdateBatcher = new RelationUpdateBatcher(plugin, this, guildInterner, relationWorker,
+            plugin.getConfig().getDouble("enemy-blocking.tick-budget-ms", 2.0));
+        this.reconciler = new BlockedGuildsReconciler(plugin, this, guildInterner, relationWorker,
+            plugin.getConfig().getInt("enemy-blocking.reconcile.regions-per-tick", 20));
 
         // Register custom WorldGuard flag
         registerCustomFlags();
+
+        // Flags are parsed once here; checks read the in-memory matrix
+        loadBlockedMatrix();
+
+        long reconcileTicks = plugin.getConfig().getLong("enemy-blocking.reconcile.interval-seconds", 600L) * 20L;
+        if (enemyBlockingEnabled && reconcileTicks > 0) {
+            reconciler.start(reconcileTicks);
+        }
     }
 
     /**
@@ -62,36 +109,8 @@ public class RelationFlagServiceImpl implements RelationFlagService {
 
     @Override
     public void updateRegionFlagsForRelation(UUID guild1, UUID guild2, RelationType newRelationType) {
-        if (!enemyBlockingEnabled) {
-            return;
-        }
-
-        // Get all shop regions owned by guild1 and guild2
-        List<net.lumalyte.armbridge.storage.ShopRegionInfo> guild1Regions =
-            plugin.getGuildRegionRepository().getGuildShopRegions(guild1);
-        List<net.lumalyte.armbridge.storage.ShopRegionInfo> guild2Regions =
-            plugin.getGuildRegionRepository().getGuildShopRegions(guild2);
-
-        // Update flags based on new relation type
-        if (newRelationType == RelationType.ENEMY) {
-            // Block each guild from the other's shops
-            for (net.lumalyte.armbridge.storage.ShopRegionInfo region : guild1Regions) {
-                blockGuildFromRegion(region.getRegionId(), region.getWorldName(), guild2);
-            }
-            for (net.lumalyte.armbridge.storage.ShopRegionInfo region : guild2Regions) {
-                blockGuildFromRegion(region.getRegionId(), region.getWorldName(), guild1);
-            }
-            plugin.getLogger().info("Blocked enemy guilds from each other's shops: " + guild1 + " <-> " + guild2);
-        } else {
-            // Unblock for ALLY, TRUCE, or NEUTRAL
-            for (net.lumalyte.armbridge.storage.ShopRegionInfo region : guild1Regions) {
-                unblockGuildFromRegion(region.getRegionId(), region.getWorldName(), guild2);
-            }
-            for (net.lumalyte.armbridge.storage.ShopRegionInfo region : guild2Regions) {
-                unblockGuildFromRegion(region.getRegionId(), region.getWorldName(), guild1);
-            }
-            plugin.getLogger().info("Unblocked guilds from each other's shops: " + guild1 + " <-> " + guild2 + " (relation: " + newRelationType + ")");
-        }
+        // Same two-phase path as queued changes, so the calling thread never touches the repository or flags
+        queueRelationChange(guild1, guild2, newRelationType);
     }
 
     @Override
@@ -100,155 +119,378 @@ public class RelationFlagServiceImpl implements RelationFlagService {
             return;
         }
 
-        // Get owner guild
+        try {
+            // Compute on the worker: guild and relation lookups; commit on the main thread: one flag write
+            CompletableFuture.supplyAsync(() -> enemyGuilds(ownerGuildId), relationWorker)
+                .thenAcceptAsync(enemies -> {
+                    if (enemies == null) {
+                        plugin.getLogger().warning("Cannot update shop region flags - owner guild not found: " + ownerGuildId);
+                        return;
+                    }
+                    boolean changed = applyBlockedGuildChanges(regionId, worldName, enemies, new BitSet());
+                    plugin.getLogger().info("Updated shop region flags for " + regionId + " - blocked " +
+                        enemies.cardinality() + " enemy guilds" + (changed ? "" : " (unchanged)"));
+                }, plugin.getMainThreadExecutor())
+                .exceptionally(e -> {
+                    plugin.getLogger().warning("Failed to update shop region flags for " + regionId + ": " + e.getMessage());
+                    e.printStackTrace();
+                    return null;
+                });
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("Relation worker stopped - shop region flags for " + regionId + " not updated");
+        }
+    }
+
+    /**
+     * Indices of every guild the owner is at war with (worker thread)
+     *
+     * @return Enemy guild indices, or null if the owner guild does not exist
+     */
+    BitSet enemyGuilds(UUID ownerGuildId) {
         Guild ownerGuild = plugin.getGuildService().getGuild(ownerGuildId);
         if (ownerGuild == null) {
-            plugin.getLogger().warning("Cannot update shop region flags - owner guild not found: " + ownerGuildId);
-            return;
+            return null;
         }
 
-        // Get all enemy guilds
-        Set<UUID> enemyGuilds = new HashSet<>();
+        BitSet enemies = new BitSet();
         Set<net.lumalyte.lg.domain.entities.Relation> enemyRelations =
             plugin.getRelationService().getGuildRelationsByType(ownerGuildId, RelationType.ENEMY);
 
         for (net.lumalyte.lg.domain.entities.Relation relation : enemyRelations) {
             // Get the other guild in the relation
-            if (relation.getGuildA().equals(ownerGuildId)) {
-                enemyGuilds.add(relation.getGuildB());
-            } else {
-                enemyGuilds.add(relation.getGuildA());
-            }
+            UUID enemyGuildId = relation.getGuildA().equals(ownerGuildId) ? relation.getGuildB() : relation.getGuildA();
+            enemies.set(guildInterner.intern(enemyGuildId));
         }
+        return enemies;
+    }
 
-        // Block all enemy guilds from this shop region
-        for (UUID enemyGuildId : enemyGuilds) {
-            blockGuildFromRegion(regionId, worldName, enemyGuildId);
+    @Override
+    public void blockGuildFromRegion(String regionId, String worldName, UUID blockedGuildId) {
+        if (!enemyBlockingEnabled || BLOCKED_GUILDS_FLAG == null) {
+            return;
         }
 
-        plugin.getLogger().info("Updated shop region flags for " + regionId + " - blocked " + enemyGuilds.size() + " enemy guilds");
+        ProtectedRegion region = getRegion(regionId, worldName);
+        if (region == null) {
+            return;
+        }
+
+        BitSet current = blockedGuilds(region, worldName);
+        int index = guildInterner.intern(blockedGuildId);
+        if (current.get(index)) {
+            return; // Already blocked - no flag write needed
+        }
+
+        BitSet updated = (BitSet) current.clone();
+        updated.set(index);
+        commit(region, worldName, updated);
+
+        plugin.getLogger().fine("Blocked guild " + blockedGuildId + " from region " + regionId);
     }
 
     @Override
-    public void blockGuildFromRegion(String regionId, String worldName, UUID blockedGuildId) {
+    public void unblockGuildFromRegion(String regionId, String worldName, UUID unblockedGuildId) {
         if (!enemyBlockingEnabled || BLOCKED_GUILDS_FLAG == null) {
             return;
         }
 
-        try {
-            // Get WorldGuard region
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(plugin.getServer().getWorld(worldName)));
+        int index = guildInterner.indexOf(unblockedGuildId);
+        if (index < 0) {
+            return; // Guild was never blocked anywhere
+        }
 
-            if (regions == null) {
-                plugin.getLogger().warning("RegionManager not found for world: " + worldName);
-                return;
-            }
+        ProtectedRegion region = getRegion(regionId, worldName);
+        if (region == null) {
+            return;
+        }
+
+        BitSet current = blockedGuilds(region, worldName);
+        if (!current.get(index)) {
+            return; // Nothing to unblock
+        }
+
+        BitSet updated = (BitSet) current.clone();
+        updated.clear(index);
+        commit(region, worldName, updated);
+
+        plugin.getLogger().fine("Unblocked guild " + unblockedGuildId + " from region " + regionId);
+    }
+
+    @Override
+    public boolean isGuildBlockedFromRegion(String regionId, String worldName, UUID guildId) {
+        if (!enemyBlockingEnabled || BLOCKED_GUILDS_FLAG == null) {
+            return false;
+        }
 
-            ProtectedRegion region = regions.getRegion(regionId);
+        Map<String, BitSet> worldMatrix = blockedMatrix.get(worldName);
+        BitSet blocked = worldMatrix != null ? worldMatrix.get(regionId) : null;
+        if (blocked == null) {
+            // Region not loaded yet (e.g. registered after startup) - read its flag once
+            ProtectedRegion region = getRegion(regionId, worldName);
             if (region == null) {
-                plugin.getLogger().warning("Region not found: " + regionId + " in world " + worldName);
-                return;
+                return false;
             }
+            blocked = blockedGuilds(region, worldName);
+        }
 
-            // Get current blocked guilds list
-            String currentValue = region.getFlag(BLOCKED_GUILDS_FLAG);
-            Set<String> blockedGuilds = new HashSet<>();
-            if (currentValue != null && !currentValue.isEmpty()) {
-                blockedGuilds.addAll(Arrays.asList(currentValue.split(",")));
-            }
+        // Looked up after the flag was read, which interns the guilds named in it
+        int index = guildInterner.indexOf(guildId);
+        return index >= 0 && blocked.get(index);
+    }
 
-            // Add new blocked guild
-            blockedGuilds.add(blockedGuildId.toString());
+    @Override
+    public void forgetRegion(String regionId, String worldName) {
+        Map<String, BitSet> worldMatrix = blockedMatrix.get(worldName);
+        if (worldMatrix != null) {
+            worldMatrix.remove(regionId);
+        }
+    }
 
-            // Set updated flag
-            region.setFlag(BLOCKED_GUILDS_FLAG, String.join(",", blockedGuilds));
+    @Override
+    public boolean purgeGuildFromRegion(String regionId, String worldName, UUID guildId, boolean ownedByGuild) {
+        if (BLOCKED_GUILDS_FLAG == null) {
+            return false;
+        }
+
+        try {
+            ProtectedRegion region = getRegion(regionId, worldName);
+            if (region == null) {
+                return false; // Region was deleted along with the shop
+            }
 
-            plugin.getLogger().fine("Blocked guild " + blockedGuildId + " from region " + regionId);
+            if (ownedByGuild) {
+                Map<String, BitSet> worldMatrix = blockedMatrix.get(worldName);
+                if (worldMatrix != null) {
+                    worldMatrix.remove(regionId);
+                }
+                if (region.getFlag(BLOCKED_GUILDS_FLAG) == null) {
+                    return false;
+                }
+                region.setFlag(BLOCKED_GUILDS_FLAG, null);
+                return true;
+            }
+
+            BitSet current = blockedGuilds(region, worldName);
+            int index = guildInterner.indexOf(guildId);
+            if (index < 0 || !current.get(index)) {
+                return false;
+            }
+            BitSet updated = (BitSet) current.clone();
+            updated.clear(index);
+            commit(region, worldName, updated);
+            return true;
         } catch (Exception e) {
-            plugin.getLogger().warning("Error blocking guild from region: " + e.getMessage());
-            e.printStackTrace();
+            plugin.getLogger().warning("Error removing guild " + guildId + " from region " + regionId + ": " +
+                e.getMessage());
+            return false;
         }
     }
 
     @Override
-    public void unblockGuildFromRegion(String regionId, String worldName, UUID unblockedGuildId) {
-        if (!enemyBlockingEnabled || BLOCKED_GUILDS_FLAG == null) {
+    public void queueRelationChange(UUID guild1, UUID guild2, RelationType newRelationType) {
+        if (!enemyBlockingEnabled) {
             return;
         }
+        relationEpoch.incrementAndGet();
+        relationUpdateBatcher.queue(guild1, guild2, newRelationType);
+    }
+
+    @Override
+    public long getReconcileCycles() {
+        return reconciler.getCycles();
+    }
+
+    @Override
+    public long getReconciledRegions() {
+        return reconciler.getRegionsChecked();
+    }
+
+    @Override
+    public long getDriftedRegions() {
+        return reconciler.getRegionsDrifted();
+    }
 
+    @Override
+    public long getDriftEntriesAdded() {
+        return reconciler.getEntriesAdded();
+    }
+
+    @Override
+    public long getDriftEntriesRemoved() {
+        return reconciler.getEntriesRemoved();
+    }
+
+    @Override
+    public void close() {
+        relationWorker.shutdownNow();
         try {
-            // Get WorldGuard region
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(plugin.getServer().getWorld(worldName)));
+            relationWorker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            if (regions == null) {
-                plugin.getLogger().warning("RegionManager not found for world: " + worldName);
-                return;
-            }
+    /**
+     * Get a region's blocked guilds from the matrix without touching WorldGuard (any thread)
+     * The returned set must not be modified.
+     *
+     * @return Blocked guild indices, or null if the region's flag has not been loaded yet
+     */
+    BitSet peekBlockedGuilds(String regionId, String worldName) {
+        Map<String, BitSet> worldMatrix = blockedMatrix.get(worldName);
+        return worldMatrix != null ? worldMatrix.get(regionId) : null;
+    }
 
-            ProtectedRegion region = regions.getRegion(regionId);
-            if (region == null) {
-                plugin.getLogger().warning("Region not found: " + regionId + " in world " + worldName);
-                return;
-            }
+    /**
+     * Apply several block/unblock changes to one region with a single flag write
+     *
+     * @param block Guild indices to block
+     * @param unblock Guild indices to unblock
+     * @return true if the region's blocked guilds changed
+     */
+    boolean applyBlockedGuildChanges(String regionId, String worldName, BitSet block, BitSet unblock) {
+        if (BLOCKED_GUILDS_FLAG == null) {
+            return false;
+        }
 
-            // Get current blocked guilds list
-            String currentValue = region.getFlag(BLOCKED_GUILDS_FLAG);
-            if (currentValue == null || currentValue.isEmpty()) {
-                return; // Nothing to unblock
-            }
+        ProtectedRegion region = getRegion(regionId, worldName);
+        if (region == null) {
+            return false;
+        }
 
-            Set<String> blockedGuilds = new HashSet<>(Arrays.asList(currentValue.split(",")));
+        BitSet current = blockedGuilds(region, worldName);
+        BitSet updated = (BitSet) current.clone();
+        updated.or(block);
+        updated.andNot(unblock);
+        if (updated.equals(current)) {
+            return false;
+        }
 
-            // Remove unblocked guild
-            blockedGuilds.remove(unblockedGuildId.toString());
+        commit(region, worldName, updated);
+        return true;
+    }
 
-            // Set updated flag (empty string if no guilds blocked)
-            if (blockedGuilds.isEmpty()) {
-                region.setFlag(BLOCKED_GUILDS_FLAG, null);
-            } else {
-                region.setFlag(BLOCKED_GUILDS_FLAG, String.join(",", blockedGuilds));
-            }
+    /**
+     * Counter bumped on every relation change
+     */
+    long getRelationEpoch() {
+        return relationEpoch.get();
+    }
 
-            plugin.getLogger().fine("Unblocked guild " + unblockedGuildId + " from region " + regionId);
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error unblocking guild from region: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Make a region's flag and matrix entry match the expected blocked guilds, writing only if either differs
+     *
+     * @param expected Guild indices that should be blocked
+     * @return The guilds the flag blocked before (as parsed), or null if the region does not exist
+     */
+    BitSet reconcileRegion(String regionId, String worldName, BitSet expected) {
+        if (BLOCKED_GUILDS_FLAG == null) {
+            return null;
+        }
+
+        ProtectedRegion region = getRegion(regionId, worldName);
+        if (region == null) {
+            return null;
+        }
+
+        // Compare the raw flag, so manual edits (including unparseable entries) are caught too
+        String value = region.getFlag(BLOCKED_GUILDS_FLAG);
+        String expectedValue = formatFlag(expected);
+        if (Objects.equals(value, expectedValue) && expected.equals(peekBlockedGuilds(regionId, worldName))) {
+            return expected;
         }
+
+        BitSet before = parseFlag(value, regionId);
+        commit(region, worldName, (BitSet) expected.clone());
+        return before;
     }
 
-    @Override
-    public boolean isGuildBlockedFromRegion(String regionId, String worldName, UUID guildId) {
-        if (!enemyBlockingEnabled || BLOCKED_GUILDS_FLAG == null) {
-            return false;
+    /**
+     * Load the blocked-guilds flag of every shop region into the matrix
+     */
+    private void loadBlockedMatrix() {
+        if (BLOCKED_GUILDS_FLAG == null) {
+            return;
         }
 
-        try {
-            // Get WorldGuard region
-            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-            RegionManager regions = container.get(BukkitAdapter.adapt(plugin.getServer().getWorld(worldName)));
+        int loaded = 0;
+        for (ShopRegionInfo info : plugin.getGuildRegionRepository().getAllShopRegions()) {
+            ProtectedRegion region = getRegion(info.getRegionId(), info.getWorldName());
+            if (region != null) {
+                blockedGuilds(region, info.getWorldName());
+                loaded++;
+            }
+        }
+        plugin.getLogger().info("Loaded blocked guilds for " + loaded + " shop regions (" +
+            guildInterner.size() + " guilds)");
+    }
 
-            if (regions == null) {
-                return false;
+    /**
+     * Get a region's blocked guilds from the matrix, parsing its flag the first time the region is seen
+     * The returned set must not be modified; changes go through commit.
+     */
+    private BitSet blockedGuilds(ProtectedRegion region, String worldName) {
+        Map<String, BitSet> worldMatrix = blockedMatrix.computeIfAbsent(worldName, w -> new ConcurrentHashMap<>());
+        return worldMatrix.computeIfAbsent(region.getId(), id -> parseFlag(region.getFlag(BLOCKED_GUILDS_FLAG), id));
+    }
+
+    private BitSet parseFlag(String value, String regionId) {
+        BitSet blocked = new BitSet();
+        if (value != null && !value.isEmpty()) {
+            for (String entry : value.split(",")) {
+                try {
+                    blocked.set(guildInterner.intern(UUID.fromString(entry.trim())));
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Ignoring invalid guild '" + entry + "' in blocked-guilds of " + regionId);
+                }
             }
+        }
+        return blocked;
+    }
 
-            ProtectedRegion region = regions.getRegion(regionId);
-            if (region == null) {
-                return false;
+    /**
+     * Flag value for a blocked set (null when empty, so the flag is removed)
+     */
+    private String formatFlag(BitSet blocked) {
+        if (blocked.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder value = new StringBuilder();
+        for (int index = blocked.nextSetBit(0); index >= 0; index = blocked.nextSetBit(index + 1)) {
+            if (value.length() > 0) {
+                value.append(',');
             }
+            value.append(guildInterner.guildAt(index));
+        }
+        return value.toString();
+    }
 
-            // Get blocked guilds list
-            String currentValue = region.getFlag(BLOCKED_GUILDS_FLAG);
-            if (currentValue == null || currentValue.isEmpty()) {
-                return false;
+    /**
+     * Publish a region's new blocked set and mirror it to the WorldGuard flag
+     */
+    private void commit(ProtectedRegion region, String worldName, BitSet blocked) {
+        blockedMatrix.computeIfAbsent(worldName, w -> new ConcurrentHashMap<>()).put(region.getId(), blocked);
+        region.setFlag(BLOCKED_GUILDS_FLAG, formatFlag(blocked));
+    }
+
+    private ProtectedRegion getRegion(String regionId, String worldName) {
+        try {
+            World world = plugin.getServer().getWorld(worldName);
+            if (world == null) {
+                return null;
             }
 
-            Set<String> blockedGuilds = new HashSet<>(Arrays.asList(currentValue.split(",")));
-            return blockedGuilds.contains(guildId.toString());
+            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
+            RegionManager regions = container.get(BukkitAdapter.adapt(world));
+            if (regions == null) {
+                plugin.getLogger().warning("RegionManager not found for world: " + worldName);
+                return null;
+            }
+            return regions.getRegion(regionId);
         } catch (Exception e) {
-            plugin.getLogger().warning("Error checking if guild is blocked: " + e.getMessage());
-            return false;
+            plugin.getLogger().warning("Error looking up WorldGuard region " + regionId + ": " + e.getMessage());
+            return null;
         }
     }
 }
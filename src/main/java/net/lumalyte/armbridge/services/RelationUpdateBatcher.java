@@ -0,0 +1,259 @@
+package net.lumalyte.armbridge.services;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.storage.ShopRegionInfo;
+import net.lumalyte.lg.domain.entities.RelationType;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces relation changes and applies them to blocked-guilds flags in two phases
+ *
+ * Changes are queued per unordered guild pair, so a burst like A-B ENEMY, A-B NEUTRAL collapses to the
+ * latest relation. The compute phase runs on the relation worker thread: it groups the shop regions of
+ * the guilds involved and turns the queued pairs into one block/unblock set per region, dropping regions
+ * the in-memory matrix says are already up to date. The commit phase runs on the main thread and writes
+ * each remaining region's flag once, spending at most the tick budget per tick. Changes queued while a
+ * batch is in flight go into the next batch.
+ */
+class RelationUpdateBatcher {
+
+    private final ARMGuildsBridge plugin;
+    private final RelationFlagServiceImpl flagService;
+    private final GuildInterner guildInterner;
+    private final Executor worker;
+    private final long tickBudgetNanos;
+
+    // guild pair key (see pairKey) -> latest relation, in queue order (guarded by this)
+    private final Long2ObjectLinkedOpenHashMap<RelationType> pending = new Long2ObjectLinkedOpenHashMap<>();
+    private int queuedEvents = 0;
+    // A batch is being computed or committed (guarded by this)
+    private boolean inFlight = false;
+
+    // Batch being committed (main thread only)
+    private BukkitTask task;
+    private Batch batch;
+    private int next = 0;
+    private int batchChanged;
+    private int batchTicks;
+    private long commitStarted;
+
+    RelationUpdateBatcher(ARMGuildsBridge plugin, RelationFlagServiceImpl flagService, GuildInterner guildInterner,
+                          Executor worker, double tickBudgetMs) {
+        this.plugin = plugin;
+        this.flagService = flagService;
+        this.guildInterner = guildInterner;
+        this.worker = worker;
+        this.tickBudgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(100L, (long) (tickBudgetMs * 1000)));
+    }
+
+    /**
+     * Queue a relation change (any thread)
+     */
+    synchronized void queue(UUID guild1, UUID guild2, RelationType relationType) {
+        pending.put(pairKey(guildInterner.intern(guild1), guildInterner.intern(guild2)), relationType);
+        queuedEvents++;
+        if (!inFlight) {
+            startCompute();
+        }
+    }
+
+    /**
+     * Hand every queued change to the worker (caller holds the lock)
+     */
+    private void startCompute() {
+        Long2ObjectMap<RelationType> changes = new Long2ObjectLinkedOpenHashMap<>(pending);
+        int events = queuedEvents;
+        pending.clear();
+        queuedEvents = 0;
+        inFlight = true;
+
+        try {
+            CompletableFuture.supplyAsync(() -> compute(changes, events), worker)
+                .whenCompleteAsync(this::startCommit, plugin.getMainThreadExecutor());
+        } catch (RejectedExecutionException e) {
+            // Worker shut down (plugin disabling) - the changes are reconciled on next start
+            inFlight = false;
+        }
+    }
+
+    /**
+     * Compute phase (worker thread): turn the queued pairs into per-region updates
+     */
+    private Batch compute(Long2ObjectMap<RelationType> changes, int events) {
+        long started = System.nanoTime();
+
+        // Shop regions of the guilds involved (by guild index), from one pass over the index
+        Int2ObjectMap<List<ShopRegionInfo>> regionsByGuild = new Int2ObjectOpenHashMap<>();
+        for (long pair : changes.keySet()) {
+            regionsByGuild.put(firstGuild(pair), new ArrayList<>());
+            regionsByGuild.put(secondGuild(pair), new ArrayList<>());
+        }
+        for (ShopRegionInfo info : plugin.getGuildRegionRepository().getAllShopRegions()) {
+            int guildIndex = guildInterner.indexOf(info.getGuildId());
+            List<ShopRegionInfo> regions = guildIndex >= 0 ? regionsByGuild.get(guildIndex) : null;
+            if (regions != null) {
+                regions.add(info);
+            }
+        }
+
+        // world + region -> combined change
+        Map<String, RegionUpdate> updates = new LinkedHashMap<>();
+        for (Long2ObjectMap.Entry<RelationType> change : changes.long2ObjectEntrySet()) {
+            long pair = change.getLongKey();
+            boolean block = change.getValue() == RelationType.ENEMY;
+            addUpdates(updates, regionsByGuild.get(firstGuild(pair)), secondGuild(pair), block);
+            addUpdates(updates, regionsByGuild.get(secondGuild(pair)), firstGuild(pair), block);
+        }
+
+        // Only regions whose blocked set would change need a flag write; regions not in the matrix yet
+        // are checked when committed
+        List<RegionUpdate> changed = new ArrayList<>(updates.size());
+        for (RegionUpdate update : updates.values()) {
+            BitSet current = flagService.peekBlockedGuilds(update.regionId, update.worldName);
+            if (current == null || update.changes(current)) {
+                changed.add(update);
+            }
+        }
+
+        return new Batch(changed, changes.size(), events, updates.size(), System.nanoTime() - started);
+    }
+
+    /**
+     * Commit phase start (main thread)
+     */
+    private void startCommit(Batch computed, Throwable error) {
+        if (error != null) {
+            plugin.getLogger().warning("Failed to compute relation flag changes: " + error.getMessage());
+            error.printStackTrace();
+            finishBatch();
+            return;
+        }
+        if (computed.updates.isEmpty()) {
+            plugin.getLogger().fine("Relation changes (" + computed.pairs + " pairs) left every shop flag unchanged");
+            finishBatch();
+            return;
+        }
+
+        batch = computed;
+        next = 0;
+        batchChanged = 0;
+        batchTicks = 0;
+        commitStarted = System.nanoTime();
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 0L, 1L);
+    }
+
+    private void tick() {
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        List<RegionUpdate> work = batch.updates;
+        batchTicks++;
+
+        // Always make progress, even if a single region takes longer than the budget
+        do {
+            RegionUpdate update = work.get(next++);
+            if (flagService.applyBlockedGuildChanges(update.regionId, update.worldName, update.block, update.unblock)) {
+                batchChanged++;
+            }
+        } while (next < work.size() && System.nanoTime() < deadline);
+
+        if (next >= work.size()) {
+            plugin.getLogger().info("Applied " + batch.pairs + " relation changes (" + batch.events + " events) to " +
+                batch.regions + " shop regions, " + batchChanged + " flags updated (computed in " +
+                TimeUnit.NANOSECONDS.toMillis(batch.computeNanos) + "ms, committed in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - commitStarted) + "ms over " + batchTicks + " ticks)");
+
+            task.cancel();
+            task = null;
+            batch = null;
+            finishBatch();
+        }
+    }
+
+    /**
+     * Start the next batch if changes were queued in the meantime
+     */
+    private synchronized void finishBatch() {
+        inFlight = false;
+        if (!pending.isEmpty()) {
+            startCompute();
+        }
+    }
+
+    private void addUpdates(Map<String, RegionUpdate> updates, List<ShopRegionInfo> regions, int guildIndex,
+                            boolean block) {
+        for (ShopRegionInfo info : regions) {
+            RegionUpdate update = updates.computeIfAbsent(info.getWorldName() + ":" + info.getRegionId(),
+                key -> new RegionUpdate(info.getRegionId(), info.getWorldName()));
+            (block ? update.block : update.unblock).set(guildIndex);
+            (block ? update.unblock : update.block).clear(guildIndex);
+        }
+    }
+
+    private static final class RegionUpdate {
+        final String regionId;
+        final String worldName;
+        final BitSet block = new BitSet();
+        final BitSet unblock = new BitSet();
+
+        RegionUpdate(String regionId, String worldName) {
+            this.regionId = regionId;
+            this.worldName = worldName;
+        }
+
+        /**
+         * Whether applying this update to a blocked set would change it
+         */
+        boolean changes(BitSet current) {
+            BitSet added = (BitSet) block.clone();
+            added.andNot(current);
+            return !added.isEmpty() || unblock.intersects(current);
+        }
+    }
+
+    private static final class Batch {
+        final List<RegionUpdate> updates;
+        final int pairs;
+        final int events;
+        final int regions;
+        final long computeNanos;
+
+        Batch(List<RegionUpdate> updates, int pairs, int events, int regions, long computeNanos) {
+            this.updates = updates;
+            this.pairs = pairs;
+            this.events = events;
+            this.regions = regions;
+            this.computeNanos = computeNanos;
+        }
+    }
+
+    /**
+     * Pack an unordered pair of guild indices into a long (A-B and B-A give the same key)
+     */
+    private static long pairKey(int guildA, int guildB) {
+        int first = Math.min(guildA, guildB);
+        int second = Math.max(guildA, guildB);
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    private static int firstGuild(long pairKey) {
+        return (int) (pairKey >>> 32);
+    }
+
+    private static int secondGuild(long pairKey) {
+        return (int) pairKey;
+    }
+}
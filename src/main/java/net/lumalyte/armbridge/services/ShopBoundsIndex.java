@@ -0,0 +1,136 @@
+package net.lumalyte.armbridge.services;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Coarse grid of guild shop region bounding boxes for one world
+ *
+ * The world is split into 64x64 block columns; each column lists the bounding boxes of the shop regions
+ * overlapping it. A position outside every box is definitely not in a guild shop, which is answered with
+ * a hash lookup and a few comparisons. Boxes are conservative (polygon regions use their bounding box),
+ * so a hit still has to be confirmed with WorldGuard.
+ *
+ * Instances are immutable; a rebuild creates a new one.
+ */
+final class ShopBoundsIndex {
+
+    private static final int CELL_SHIFT = 6;
+
+    // Regions spanning more columns than this are checked everywhere instead of being gridded
+    private static final int MAX_CELLS_PER_REGION = 4096;
+
+    static final ShopBoundsIndex EMPTY = new ShopBoundsIndex(new Long2ObjectOpenHashMap<>(0), new int[0], new int[0], false);
+
+    // Stand-in for a world whose regions could not be read: every position may contain a shop
+    static final ShopBoundsIndex PASS_THROUGH = new ShopBoundsIndex(new Long2ObjectOpenHashMap<>(0), new int[0], new int[0], true);
+
+    // column key -> boxes as flat (minX, minY, minZ, maxX, maxY, maxZ) runs
+    private final Long2ObjectMap<int[]> cells;
+    private final int[] largeBoxes;
+    // every box, sorted, used to tell whether a rebuild changed anything
+    private final int[] allBoxes;
+    private final boolean passThrough;
+
+    private ShopBoundsIndex(Long2ObjectMap<int[]> cells, int[] largeBoxes, int[] allBoxes, boolean passThrough) {
+        this.cells = cells;
+        this.largeBoxes = largeBoxes;
+        this.allBoxes = allBoxes;
+        this.passThrough = passThrough;
+    }
+
+    /**
+     * Build an index from region bounding boxes
+     *
+     * @param regionBoxes One (minX, minY, minZ, maxX, maxY, maxZ) array per shop region, any order
+     */
+    static ShopBoundsIndex build(List<int[]> regionBoxes) {
+        if (regionBoxes.isEmpty()) {
+            return EMPTY;
+        }
+
+        // Sorted, so indexes built from the same regions compare equal
+        List<int[]> boxes = new ArrayList<>(regionBoxes);
+        boxes.sort(Arrays::compare);
+
+        Long2ObjectMap<int[]> cells = new Long2ObjectOpenHashMap<>();
+        int[] large = new int[0];
+        int[] all = new int[boxes.size() * 6];
+
+        for (int i = 0; i < boxes.size(); i++) {
+            int[] box = boxes.get(i);
+            System.arraycopy(box, 0, all, i * 6, 6);
+
+            int minCellX = box[0] >> CELL_SHIFT;
+            int minCellZ = box[2] >> CELL_SHIFT;
+            int maxCellX = box[3] >> CELL_SHIFT;
+            int maxCellZ = box[5] >> CELL_SHIFT;
+            long cellCount = (long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1);
+
+            if (cellCount > MAX_CELLS_PER_REGION) {
+                large = append(large, box);
+                continue;
+            }
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                    long key = cellKey(cellX, cellZ);
+                    int[] existing = cells.get(key);
+                    cells.put(key, existing == null ? box.clone() : append(existing, box));
+                }
+            }
+        }
+
+        return new ShopBoundsIndex(cells, large, all, false);
+    }
+
+    /**
+     * Whether a block position may be inside a guild shop region
+     *
+     * @return false if the position is definitely outside every shop region
+     */
+    boolean mayContainShop(int x, int y, int z) {
+        if (passThrough) {
+            return true;
+        }
+        int[] boxes = cells.get(cellKey(x >> CELL_SHIFT, z >> CELL_SHIFT));
+        return (boxes != null && contains(boxes, x, y, z)) || contains(largeBoxes, x, y, z);
+    }
+
+    /**
+     * Whether another index covers exactly the same boxes
+     */
+    boolean sameBoundsAs(ShopBoundsIndex other) {
+        return other != null && passThrough == other.passThrough && Arrays.equals(allBoxes, other.allBoxes);
+    }
+
+    /**
+     * Whether this is the PASS_THROUGH stand-in rather than a real grid
+     */
+    boolean isPassThrough() {
+        return passThrough;
+    }
+
+    private static boolean contains(int[] boxes, int x, int y, int z) {
+        for (int i = 0; i < boxes.length; i += 6) {
+            if (x >= boxes[i] && y >= boxes[i + 1] && z >= boxes[i + 2] &&
+                x <= boxes[i + 3] && y <= boxes[i + 4] && z <= boxes[i + 5]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] append(int[] boxes, int[] box) {
+        int[] grown = Arrays.copyOf(boxes, boxes.length + 6);
+        System.arraycopy(box, 0, grown, boxes.length, 6);
+        return grown;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
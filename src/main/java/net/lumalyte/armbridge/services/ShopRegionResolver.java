@@ -0,0 +1,57 @@
+package net.lumalyte.armbridge.services;
+
+import net.lumalyte.armbridge.storage.ShopRegionInfo;
+import org.bukkit.Location;
+
+import java.util.UUID;
+
+/**
+ * Resolves which guild shop region (if any) contains a block position.
+ * Positions outside every shop region's bounding box are rejected up front, and results are cached
+ * per chunk so repeated lookups skip the WorldGuard query.
+ */
+public interface ShopRegionResolver {
+
+    /**
+     * Get the guild shop region containing a location
+     *
+     * @param location Location to check
+     * @return ShopRegionInfo or null if the location is not in a guild shop
+     */
+    ShopRegionInfo getShopRegionInfo(Location location);
+
+    /**
+     * Get the guild that owns the shop region containing a location
+     *
+     * @param location Location to check
+     * @return Guild UUID or null if the location is not in a guild shop
+     */
+    UUID getShopGuild(Location location);
+
+    /**
+     * Drop cached lookups for a chunk (called when the chunk unloads)
+     *
+     * @param worldName World name
+     * @param chunkX Chunk X coordinate
+     * @param chunkZ Chunk Z coordinate
+     */
+    void invalidateChunk(String worldName, int chunkX, int chunkZ);
+
+    /**
+     * Drop all cached lookups for a world (called when shop regions are registered or removed)
+     *
+     * @param worldName World name
+     */
+    void invalidateWorld(String worldName);
+
+    /**
+     * Drop all cached lookups
+     */
+    void invalidateAll();
+
+    /**
+     * Rebuild the shop region bounding boxes from WorldGuard (picks up redefined regions);
+     * runs periodically, call it after changing a shop region's shape for an immediate update
+     */
+    void refreshBounds();
+}
@@ -0,0 +1,212 @@
+package net.lumalyte.armbridge.services;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+import net.lumalyte.armbridge.ARMGuildsBridge;
+import net.lumalyte.armbridge.storage.GuildRegionRepository;
+import net.lumalyte.armbridge.storage.ShopRegionInfo;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of ShopRegionResolver
+ * Positions outside every shop region's bounding box are rejected by a per-world grid (ShopBoundsIndex)
+ * without touching WorldGuard or the cache. Other positions cache "block position -> shop region ID
+ * (or none)" per chunk. Only the region ID is cached, so access mode changes are picked up from the
+ * repository without invalidation.
+ *
+ * The grid is rebuilt when a world's shops change and periodically, to pick up regions that were
+ * redefined in WorldGuard. A world whose regions could not be read gets a pass-through grid, so lookups
+ * go straight to WorldGuard until a later refresh builds the real one.
+ */
+public class ShopRegionResolverImpl implements ShopRegionResolver {
+
+    // Marker for "no guild shop at this position" (WorldGuard region IDs are never empty)
+    private static final String NO_SHOP = "";
+
+    private final ARMGuildsBridge plugin;
+    private final GuildRegionRepository repository;
+
+    // world name -> chunk key -> block key -> shop region ID
+    private final Map<String, Map<Long, Map<Integer, String>>> cache = new ConcurrentHashMap<>();
+
+    // world name -> bounding box grid of the world's shop regions (built on first lookup)
+    private final Map<String, ShopBoundsIndex> bounds = new ConcurrentHashMap<>();
+
+    public ShopRegionResolverImpl(ARMGuildsBridge plugin, GuildRegionRepository repository) {
+        this.plugin = plugin;
+        this.repository = repository;
+
+        long refreshTicks = plugin.getConfig().getLong("shop-bounds.refresh-interval-seconds", 300L) * 20L;
+        if (refreshTicks > 0) {
+            plugin.getServer().getScheduler().runTaskTimer(plugin, this::refreshBounds, refreshTicks, refreshTicks);
+        }
+    }
+
+    @Override
+    public ShopRegionInfo getShopRegionInfo(Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+
+        ShopBoundsIndex worldBounds = bounds.computeIfAbsent(world.getName(), w -> buildBounds(world));
+        if (!worldBounds.mayContainShop(x, y, z)) {
+            return null; // Outside every shop region's bounding box
+        }
+
+        Map<Integer, String> chunkCache = cache
+            .computeIfAbsent(world.getName(), w -> new ConcurrentHashMap<>())
+            .computeIfAbsent(chunkKey(x >> 4, z >> 4), c -> new ConcurrentHashMap<>());
+
+        int blockKey = blockKey(x, y, z);
+        String regionId = chunkCache.get(blockKey);
+        if (regionId == null) {
+            regionId = resolveShopRegionId(world, x, y, z);
+            if (regionId == null) {
+                return null; // Lookup failed - don't cache
+            }
+            chunkCache.put(blockKey, regionId);
+        }
+
+        if (regionId.isEmpty()) {
+            return null;
+        }
+
+        return repository.getShopRegionInfo(regionId, world.getName());
+    }
+
+    @Override
+    public UUID getShopGuild(Location location) {
+        ShopRegionInfo shopInfo = getShopRegionInfo(location);
+        return shopInfo != null ? shopInfo.getGuildId() : null;
+    }
+
+    @Override
+    public void invalidateChunk(String worldName, int chunkX, int chunkZ) {
+        Map<Long, Map<Integer, String>> worldCache = cache.get(worldName);
+        if (worldCache != null) {
+            worldCache.remove(chunkKey(chunkX, chunkZ));
+        }
+    }
+
+    @Override
+    public void invalidateWorld(String worldName) {
+        cache.remove(worldName);
+        bounds.remove(worldName);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.clear();
+        bounds.clear();
+    }
+
+    @Override
+    public void refreshBounds() {
+        for (Map.Entry<String, ShopBoundsIndex> entry : bounds.entrySet()) {
+            World world = plugin.getServer().getWorld(entry.getKey());
+            ShopBoundsIndex rebuilt = world != null ? buildBounds(world) : null;
+            if (rebuilt == null) {
+                invalidateWorld(entry.getKey());
+            } else if (rebuilt.isPassThrough() && !entry.getValue().isPassThrough()) {
+                // WorldGuard failed this time - keep the last good grid and try again next refresh
+                continue;
+            } else if (!rebuilt.sameBoundsAs(entry.getValue())) {
+                // A shop region was redefined - cached positions may be wrong now
+                cache.remove(entry.getKey());
+                bounds.put(entry.getKey(), rebuilt);
+            }
+        }
+    }
+
+    /**
+     * Collect the bounding boxes of a world's guild shop regions from WorldGuard
+     *
+     * @return The grid, or ShopBoundsIndex.PASS_THROUGH if WorldGuard could not be queried (lookups then go
+     *         straight to WorldGuard, and refreshBounds replaces it)
+     */
+    private ShopBoundsIndex buildBounds(World world) {
+        try {
+            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
+            RegionManager regions = container.get(BukkitAdapter.adapt(world));
+            if (regions == null) {
+                return ShopBoundsIndex.EMPTY;
+            }
+
+            List<int[]> boxes = new ArrayList<>();
+            for (ShopRegionInfo info : repository.getAllShopRegions()) {
+                if (!info.getWorldName().equals(world.getName())) {
+                    continue;
+                }
+                ProtectedRegion region = regions.getRegion(info.getRegionId());
+                if (region == null) {
+                    continue;
+                }
+                BlockVector3 min = region.getMinimumPoint();
+                BlockVector3 max = region.getMaximumPoint();
+                boxes.add(new int[] {
+                    min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                    max.getBlockX(), max.getBlockY(), max.getBlockZ()
+                });
+            }
+            return ShopBoundsIndex.build(boxes);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error building shop bounds for " + world.getName() + ": " + e.getMessage());
+            return ShopBoundsIndex.PASS_THROUGH;
+        }
+    }
+
+    /**
+     * Query WorldGuard for the guild shop region at a block position
+     *
+     * @return Region ID, NO_SHOP if there is none, or null if the lookup failed
+     */
+    private String resolveShopRegionId(World world, int x, int y, int z) {
+        try {
+            RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
+            RegionManager regions = container.get(BukkitAdapter.adapt(world));
+
+            if (regions == null) {
+                return NO_SHOP;
+            }
+
+            ApplicableRegionSet regionSet = regions.getApplicableRegions(BlockVector3.at(x, y, z));
+
+            // Check each region to see if it's registered as a guild shop
+            for (ProtectedRegion region : regionSet) {
+                if (repository.getShopRegionInfo(region.getId(), world.getName()) != null) {
+                    return region.getId();
+                }
+            }
+
+            return NO_SHOP;
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error looking up WorldGuard region: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int blockKey(int x, int y, int z) {
+        return (y << 8) | ((z & 15) << 4) | (x & 15);
+    }
+}
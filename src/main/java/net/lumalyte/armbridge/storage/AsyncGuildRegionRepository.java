@@ -0,0 +1,114 @@
+package net.lumalyte.armbridge.storage;
+
+import net.lumalyte.armbridge.models.EnemyAccessMode;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking variant of GuildRegionRepository
+ *
+ * Every method runs on a storage executor and returns immediately. Futures complete off the main
+ * thread, so callers must hop back (see MainThreadExecutor) before using the Bukkit API.
+ */
+public interface AsyncGuildRegionRepository {
+
+    /**
+     * @see GuildRegionRepository#registerGuildShopRegion
+     */
+    CompletableFuture<Boolean> registerGuildShopRegion(String regionId, String worldName, UUID guildId,
+                                                       double purchasePrice);
+
+    /**
+     * @see GuildRegionRepository#registerGuildShopRegion(String, String, UUID, double, int)
+     */
+    CompletableFuture<Boolean> registerGuildShopRegion(String regionId, String worldName, UUID guildId,
+                                                       double purchasePrice, int maxShops);
+
+    /**
+     * @see GuildRegionRepository#getGuildForShopRegion
+     */
+    CompletableFuture<UUID> getGuildForShopRegion(String regionId, String worldName);
+
+    /**
+     * @see GuildRegionRepository#getGuildShopRegions
+     */
+    CompletableFuture<List<ShopRegionInfo>> getGuildShopRegions(UUID guildId);
+
+    /**
+     * @see GuildRegionRepository#getGuildShopCount
+     */
+    CompletableFuture<Integer> getGuildShopCount(UUID guildId);
+
+    /**
+     * @see GuildRegionRepository#removeGuildShopRegion
+     */
+    CompletableFuture<Boolean> removeGuildShopRegion(String regionId, String worldName);
+
+    /**
+     * @see GuildRegionRepository#removeAllGuildShopRegions
+     */
+    CompletableFuture<Integer> removeAllGuildShopRegions(UUID guildId);
+
+    /**
+     * @see GuildRegionRepository#removeGuildData
+     */
+    CompletableFuture<List<ShopRegionInfo>> removeGuildData(UUID guildId);
+
+    /**
+     * @see GuildRegionRepository#getTransactionHistory
+     */
+    CompletableFuture<List<ShopTransaction>> getTransactionHistory(UUID guildId, int limit);
+
+    /**
+     * The consumer runs on the storage thread, not the main thread.
+     *
+     * @see GuildRegionRepository#streamTransactionHistory
+     */
+    CompletableFuture<TransactionCursor> streamTransactionHistory(UUID guildId, TransactionCursor after,
+                                                                  String regionId, String transactionType,
+                                                                  int limit, Consumer<ShopTransaction> consumer);
+
+    /**
+     * @see GuildRegionRepository#getTransactionRollups
+     */
+    CompletableFuture<List<TransactionRollup>> getTransactionRollups(UUID guildId, String regionId,
+                                                                     LocalDate fromDay, LocalDate toDay);
+
+    /**
+     * @see GuildRegionRepository#getTransactionTotals
+     */
+    CompletableFuture<Map<String, TransactionRollup>> getTransactionTotals(UUID guildId, LocalDate fromDay,
+                                                                           LocalDate toDay);
+
+    /**
+     * @see GuildRegionRepository#getShopRegionInfo
+     */
+    CompletableFuture<ShopRegionInfo> getShopRegionInfo(String regionId, String worldName);
+
+    /**
+     * @see GuildRegionRepository#updateEnemyAccessMode
+     */
+    CompletableFuture<Boolean> updateEnemyAccessMode(String regionId, String worldName,
+                                                     EnemyAccessMode mode, double upchargePercentage);
+
+    /**
+     * Run other storage-bound work (e.g. a service call that writes through the repository) on the
+     * storage executor
+     *
+     * @param operation Work to run
+     * @return Future completed with the work's result
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> operation);
+
+    /**
+     * Stop accepting work and wait for queued operations to finish
+     * Call before closing the underlying repository.
+     */
+    void close();
+}
@@ -0,0 +1,132 @@
+package net.lumalyte.armbridge.storage;
+
+import net.lumalyte.armbridge.models.EnemyAccessMode;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * AsyncGuildRegionRepository that runs a blocking GuildRegionRepository on virtual threads
+ *
+ * Virtual threads are cheap to block, and the database itself bounds concurrency (one writer,
+ * a small pool of readers), so each operation simply gets its own thread.
+ */
+public class AsyncGuildRegionRepositoryImpl implements AsyncGuildRegionRepository {
+
+    private final Logger logger;
+    private final GuildRegionRepository repository;
+    private final ExecutorService executor;
+
+    public AsyncGuildRegionRepositoryImpl(Logger logger, GuildRegionRepository repository) {
+        this.logger = logger;
+        this.repository = repository;
+        this.executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("ARMGuildsBridge-Storage-", 0).factory());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> registerGuildShopRegion(String regionId, String worldName, UUID guildId,
+                                                              double purchasePrice) {
+        return submit(() -> repository.registerGuildShopRegion(regionId, worldName, guildId, purchasePrice));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> registerGuildShopRegion(String regionId, String worldName, UUID guildId,
+                                                              double purchasePrice, int maxShops) {
+        return submit(() -> repository.registerGuildShopRegion(regionId, worldName, guildId, purchasePrice,
+            maxShops));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getGuildForShopRegion(String regionId, String worldName) {
+        return submit(() -> repository.getGuildForShopRegion(regionId, worldName));
+    }
+
+    @Override
+    public CompletableFuture<List<ShopRegionInfo>> getGuildShopRegions(UUID guildId) {
+        return submit(() -> repository.getGuildShopRegions(guildId));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getGuildShopCount(UUID guildId) {
+        return submit(() -> repository.getGuildShopCount(guildId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeGuildShopRegion(String regionId, String worldName) {
+        return submit(() -> repository.removeGuildShopRegion(regionId, worldName));
+    }
+
+    @Override
+    public CompletableFuture<Integer> removeAllGuildShopRegions(UUID guildId) {
+        return submit(() -> repository.removeAllGuildShopRegions(guildId));
+    }
+
+    @Override
+    public CompletableFuture<List<ShopRegionInfo>> removeGuildData(UUID guildId) {
+        return submit(() -> repository.removeGuildData(guildId));
+    }
+
+    @Override
+    public CompletableFuture<List<ShopTransaction>> getTransactionHistory(UUID guildId, int limit) {
+        return submit(() -> repository.getTransactionHistory(guildId, limit));
+    }
+
+    @Override
+    public CompletableFuture<TransactionCursor> streamTransactionHistory(UUID guildId, TransactionCursor after,
+                                                                         String regionId, String transactionType,
+                                                                         int limit,
+                                                                         Consumer<ShopTransaction> consumer) {
+        return submit(() -> repository.streamTransactionHistory(guildId, after, regionId, transactionType,
+            limit, consumer));
+    }
+
+    @Override
+    public CompletableFuture<List<TransactionRollup>> getTransactionRollups(UUID guildId, String regionId,
+                                                                            LocalDate fromDay, LocalDate toDay) {
+        return submit(() -> repository.getTransactionRollups(guildId, regionId, fromDay, toDay));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, TransactionRollup>> getTransactionTotals(UUID guildId, LocalDate fromDay,
+                                                                                  LocalDate toDay) {
+        return submit(() -> repository.getTransactionTotals(guildId, fromDay, toDay));
+    }
+
+    @Override
+    public CompletableFuture<ShopRegionInfo> getShopRegionInfo(String regionId, String worldName) {
+        return submit(() -> repository.getShopRegionInfo(regionId, worldName));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateEnemyAccessMode(String regionId, String worldName,
+                                                            EnemyAccessMode mode, double upchargePercentage) {
+        return submit(() -> repository.updateEnemyAccessMode(regionId, worldName, mode, upchargePercentage));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for async storage operations to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
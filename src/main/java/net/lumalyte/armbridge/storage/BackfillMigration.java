@@ -0,0 +1,22 @@
+package net.lumalyte.armbridge.storage;
+
+import java.sql.SQLException;
+
+/**
+ * A migration that moves data in chunks in the background instead of in one startup transaction
+ *
+ * SchemaMigrator calls migrateChunk repeatedly, each call in its own transaction, until it returns 0.
+ * It then calls apply to finish the migration (e.g. drop a source table) and records the version.
+ * Chunks must be idempotent and resumable, since the server may stop between any two of them.
+ * Backfills run after every pending schema migration, so other migrations must not depend on their data.
+ */
+public interface BackfillMigration extends SchemaMigration {
+
+    /**
+     * Migrate the next chunk of rows
+     *
+     * @param connection Writer connection
+     * @return Number of rows processed, or 0 when nothing is left
+     */
+    int migrateChunk(DatabaseConnection connection) throws SQLException;
+}
@@ -0,0 +1,112 @@
+package net.lumalyte.armbridge.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A pooled SQLite connection with a cache of prepared statements
+ *
+ * A DatabaseConnection is only ever used by the thread that currently holds it (the writer lock or a
+ * borrowed reader), so cached statements are never shared concurrently. Statements returned by
+ * prepare() are owned by the cache: callers close their ResultSets but must not close the statement.
+ */
+public class DatabaseConnection {
+
+    private static final int MAX_CACHED_STATEMENTS = 64;
+
+    private final Logger logger;
+    private final Connection connection;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // SQL text -> prepared statement, least recently used first
+    private final Map<String, PreparedStatement> statements =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > MAX_CACHED_STATEMENTS) {
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+    DatabaseConnection(Logger logger, Connection connection) {
+        this.logger = logger;
+        this.connection = connection;
+    }
+
+    /**
+     * Get a cached prepared statement for the SQL, preparing it on first use
+     * Parameters and batches left over from the previous use are cleared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+            stmt.clearParameters();
+            stmt.clearBatch();
+            return stmt;
+        }
+
+        misses.increment();
+        stmt = connection.prepareStatement(sql);
+        statements.put(sql, stmt);
+        return stmt;
+    }
+
+    /**
+     * Create an uncached statement (for DDL and one-off queries); the caller must close it
+     */
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    /**
+     * Underlying JDBC connection (for transaction control)
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Close every cached statement and the connection
+     */
+    void close() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeStatement(stmt);
+        }
+        statements.clear();
+
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            logger.warning("Error closing database connection: " + e.getMessage());
+        }
+    }
+
+    private void closeStatement(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            logger.warning("Error closing prepared statement: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package net.lumalyte.armbridge.storage;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Central connection manager for guild_shops.db, shared by every store
+ *
+ * The database runs in WAL mode so readers never block the writer. All writes go through a single
+ * connection guarded by a lock; reads borrow one of a small pool of read-only connections (waiting at
+ * most the read timeout for one to become free).
+ * Each connection caches its prepared statements (see DatabaseConnection).
+ */
+public class DatabaseManager {
+
+    /**
+     * Work to run against a connection
+     */
+    @FunctionalInterface
+    public interface SqlFunction<T> {
+        T apply(DatabaseConnection connection) throws SQLException;
+    }
+
+    private final Logger logger;
+    private final String url;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<DatabaseConnection> readers;
+    private final List<DatabaseConnection> allReaders = new ArrayList<>();
+    private final long readTimeoutMs;
+    private DatabaseConnection writer;
+    private volatile boolean closed;
+
+    /**
+     * @param logger Plugin logger
+     * @param databaseFile SQLite database file
+     * @param readConnections Number of pooled read-only connections
+     * @param readTimeoutMs Longest time a read waits for a pooled connection before failing
+     */
+    public DatabaseManager(Logger logger, File databaseFile, int readConnections, long readTimeoutMs) {
+        this.logger = logger;
+        this.url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        this.readers = new ArrayBlockingQueue<>(Math.max(1, readConnections));
+        this.readTimeoutMs = Math.max(1, readTimeoutMs);
+    }
+
+    /**
+     * Open the writer and reader connections and apply pragmas
+     */
+    public void open() throws SQLException {
+        Connection writerConnection = DriverManager.getConnection(url);
+        try (Statement stmt = writerConnection.createStatement()) {
+            // auto_vacuum can only be chosen before the first table exists, so only new databases get it here
+            // (existing ones are converted on request, see startIncrementalVacuumConversion)
+            if (isEmpty(stmt)) {
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            }
+            // journal_mode is persistent, so set it once on the writer before readers connect
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+        }
+        applyConnectionPragmas(writerConnection);
+        writer = new DatabaseConnection(logger, writerConnection);
+
+        int readerCount = readers.remainingCapacity();
+        for (int i = 0; i < readerCount; i++) {
+            Connection readerConnection = DriverManager.getConnection(url);
+            applyConnectionPragmas(readerConnection);
+            try (Statement stmt = readerConnection.createStatement()) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+            DatabaseConnection reader = new DatabaseConnection(logger, readerConnection);
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+
+        logger.info("Opened SQLite database in WAL mode (1 writer, " + readerCount + " readers): " + url);
+    }
+
+    private boolean isEmpty(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+            return rs.next() && rs.getInt(1) == 0;
+        }
+    }
+
+    private void applyConnectionPragmas(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = 5000");
+            stmt.execute("PRAGMA cache_size = -8000");      // 8 MB page cache per connection
+            stmt.execute("PRAGMA mmap_size = 67108864");    // 64 MB memory-mapped I/O
+            stmt.execute("PRAGMA temp_store = MEMORY");
+        }
+    }
+
+    /**
+     * Run work on the writer connection (serialized with all other writes)
+     */
+    public <T> T write(SqlFunction<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            return work.apply(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Run work on the writer connection inside a single transaction
+     * Commits on success and rolls back if the work throws.
+     */
+    public <T> T writeTransaction(SqlFunction<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            Connection connection = writer.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                T result = work.apply(writer);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    logger.warning("Failed to roll back transaction: " + rollbackError.getMessage());
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Run work on a pooled read-only connection
+     * Fails if no connection becomes free within the read timeout, so a stuck borrower can't stall callers.
+     */
+    public <T> T read(SqlFunction<T> work) throws SQLException {
+        if (closed) {
+            throw new SQLException("Database is closed");
+        }
+
+        DatabaseConnection reader;
+        try {
+            reader = readers.poll(readTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+        if (reader == null) {
+            throw new SQLException("No read connection free after " + readTimeoutMs + "ms (all " +
+                allReaders.size() + " in use)");
+        }
+
+        try {
+            return work.apply(reader);
+        } finally {
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * Run work on a pooled read-only connection inside a single read transaction
+     * Every query sees the same snapshot of the database, even if writes commit in between.
+     */
+    public <T> T readTransaction(SqlFunction<T> work) throws SQLException {
+        return read(reader -> {
+            Connection connection = reader.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                return work.apply(reader);
+            } finally {
+                try {
+                    connection.commit();
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    /**
+     * Whether the database uses incremental auto-vacuum (free pages can be returned in steps)
+     */
+    public boolean isIncrementalVacuum() throws SQLException {
+        return read(conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                return rs.next() && rs.getInt(1) == 2;
+            }
+        });
+    }
+
+    /**
+     * Switch an existing database to incremental auto-vacuum in the background (no-op if it already uses it)
+     * This needs a full VACUUM, which rewrites the whole file while holding the write lock, so writes wait
+     * until it finishes.
+     */
+    public void startIncrementalVacuumConversion() {
+        Thread thread = new Thread(() -> {
+            try {
+                if (isIncrementalVacuum()) {
+                    logger.info("Database already uses incremental auto-vacuum - storage.vacuum.convert-to-incremental " +
+                        "can be turned off");
+                    return;
+                }
+
+                logger.info("Converting database to incremental auto-vacuum (full VACUUM, writes wait until done)...");
+                long started = System.nanoTime();
+                write(conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                        stmt.execute("VACUUM");
+                    }
+                    return null;
+                });
+                logger.info("Converted database to incremental auto-vacuum in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms");
+            } catch (SQLException e) {
+                logger.severe("Failed to convert database to incremental auto-vacuum: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, "ARMGuildsBridge-VacuumConversion");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Total prepared statement cache hits across all connections
+     */
+    public long getStatementCacheHits() {
+        long hits = writer != null ? writer.getCacheHits() : 0;
+        for (DatabaseConnection reader : allReaders) {
+            hits += reader.getCacheHits();
+        }
+        return hits;
+    }
+
+    /**
+     * Total prepared statement cache misses (statements prepared) across all connections
+     */
+    public long getStatementCacheMisses() {
+        long misses = writer != null ? writer.getCacheMisses() : 0;
+        for (DatabaseConnection reader : allReaders) {
+            misses += reader.getCacheMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * Close all connections
+     * Waits (up to 10 seconds) for borrowed read connections to be returned before closing them.
+     */
+    public void close() {
+        closed = true;
+        logger.info("Prepared statement cache: " + getStatementCacheHits() + " hits, " +
+            getStatementCacheMisses() + " misses");
+
+        // Readers first, without the write lock, in case a borrower still needs to write
+        closeReaders();
+
+        writeLock.lock();
+        try {
+            if (writer != null) {
+                // Fold the WAL back into the main database file
+                try (Statement stmt = writer.createStatement()) {
+                    stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                } catch (SQLException e) {
+                    logger.warning("Failed to checkpoint WAL: " + e.getMessage());
+                }
+                writer.close();
+                writer = null;
+            }
+
+            logger.info("Database connections closed");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void closeReaders() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        int closedReaders = 0;
+        try {
+            while (closedReaders < allReaders.size()) {
+                DatabaseConnection reader = readers.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (reader == null) {
+                    break;
+                }
+                reader.close();
+                closedReaders++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (closedReaders < allReaders.size()) {
+            logger.warning((allReaders.size() - closedReaders) + " read connections were still in use " +
+                "and were left open");
+        }
+        allReaders.clear();
+    }
+}
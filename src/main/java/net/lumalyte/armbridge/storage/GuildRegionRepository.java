@@ -1,7 +1,10 @@
 package net.lumalyte.armbridge.storage;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for guild shop region data
@@ -19,6 +22,49 @@ public interface GuildRegionRepository {
      */
     boolean registerGuildShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice);
 
+    /**
+     * Register a shop region unless the guild already owns the maximum number of shops
+     * The limit check and the registration are atomic, so concurrent purchases cannot exceed the limit.
+     *
+     * @param regionId ARM region ID
+     * @param worldName World name
+     * @param guildId Guild UUID
+     * @param purchasePrice Price paid for the region
+     * @param maxShops Maximum shop regions per guild (0 = unlimited)
+     * @return true if successfully registered; false if the limit was reached or registration failed
+     */
+    boolean registerGuildShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice,
+                                    int maxShops);
+
+    /**
+     * Take one shop slot for a guild ahead of its registration (e.g. before charging for the region)
+     * A reserved slot counts towards the limit until it is registered or released.
+     *
+     * @param guildId Guild UUID
+     * @param maxShops Maximum shop regions per guild (0 = unlimited)
+     * @return true if reserved; false if the guild already has the maximum number of shops
+     */
+    boolean reserveShopSlot(UUID guildId, int maxShops);
+
+    /**
+     * Give back a slot taken by reserveShopSlot that will not be registered
+     *
+     * @param guildId Guild UUID
+     */
+    void releaseShopSlot(UUID guildId);
+
+    /**
+     * Register a shop region into a slot taken by reserveShopSlot
+     * The slot is released if registration fails.
+     *
+     * @param regionId ARM region ID
+     * @param worldName World name
+     * @param guildId Guild UUID
+     * @param purchasePrice Price paid for the region
+     * @return true if successfully registered
+     */
+    boolean registerReservedShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice);
+
     /**
      * Get the guild ID for a shop region
      *
@@ -36,6 +82,14 @@ public interface GuildRegionRepository {
      */
     List<ShopRegionInfo> getGuildShopRegions(UUID guildId);
 
+    /**
+     * Get the number of shop regions owned by a guild (O(1), from a maintained counter)
+     *
+     * @param guildId Guild UUID
+     * @return Number of shop regions
+     */
+    int getGuildShopCount(UUID guildId);
+
     /**
      * Remove a shop region from guild ownership
      *
@@ -53,8 +107,26 @@ public interface GuildRegionRepository {
      */
     int removeAllGuildShopRegions(UUID guildId);
 
+    /**
+     * Remove everything stored for a disbanded guild (shop regions and ItemShop registrations)
+     * in a single database transaction
+     *
+     * @param guildId Guild UUID
+     * @return The shop regions that were removed, or null if the transaction failed
+     */
+    List<ShopRegionInfo> removeGuildData(UUID guildId);
+
+    /**
+     * Get every registered guild shop region
+     *
+     * @return List of shop regions (any order)
+     */
+    List<ShopRegionInfo> getAllShopRegions();
+
     /**
      * Log a shop transaction
+     * The transaction is written asynchronously; it may take up to the journal flush interval
+     * before it appears in getTransactionHistory.
      *
      * @param guildId Guild UUID
      * @param regionId ARM region ID
@@ -62,7 +134,7 @@ public interface GuildRegionRepository {
      * @param amount Amount
      * @param description Transaction description
      * @param actorId Player UUID who initiated the transaction (optional)
-     * @return true if successfully logged
+     * @return true if successfully queued for logging
      */
     boolean logShopTransaction(UUID guildId, String regionId, String transactionType,
                                double amount, String description, UUID actorId);
@@ -77,9 +149,45 @@ public interface GuildRegionRepository {
     List<ShopTransaction> getTransactionHistory(UUID guildId, int limit);
 
     /**
-     * Initialize database schema (create tables if they don't exist)
+     * Stream one page of a guild's transaction history, newest first
+     * The page is read first and then passed to the consumer on the calling thread, after the database
+     * connection has been released.
+     *
+     * @param guildId Guild UUID
+     * @param after Cursor returned by the previous page, or null for the first page
+     * @param regionId Only include this region (optional)
+     * @param transactionType Only include this transaction type (optional)
+     * @param limit Maximum number of transactions in the page
+     * @param consumer Receives each transaction in order
+     * @return Cursor for the next page, or null if this was the last page
+     * @throws IllegalStateException While legacy history is still being copied into the v2 table
+     *         (getTransactionHistory already includes it)
+     */
+    TransactionCursor streamTransactionHistory(UUID guildId, TransactionCursor after, String regionId,
+                                               String transactionType, int limit,
+                                               Consumer<ShopTransaction> consumer);
+
+    /**
+     * Get daily transaction rollups for a guild (one entry per region, UTC day and transaction type)
+     * Served from pre-aggregated rollups, so the cost does not depend on the size of the ledger.
+     *
+     * @param guildId Guild UUID
+     * @param regionId Only include this region (optional)
+     * @param fromDay First UTC day (inclusive)
+     * @param toDay Last UTC day (inclusive)
+     * @return Rollups ordered by day, region and transaction type
+     */
+    List<TransactionRollup> getTransactionRollups(UUID guildId, String regionId, LocalDate fromDay, LocalDate toDay);
+
+    /**
+     * Get a guild's transaction totals per transaction type over a range of days, across all regions
+     *
+     * @param guildId Guild UUID
+     * @param fromDay First UTC day (inclusive)
+     * @param toDay Last UTC day (inclusive)
+     * @return Transaction type -> totals (region and day are null)
      */
-    void initializeSchema();
+    Map<String, TransactionRollup> getTransactionTotals(UUID guildId, LocalDate fromDay, LocalDate toDay);
 
     /**
      * Get enemy access mode for a shop region
@@ -102,4 +210,16 @@ public interface GuildRegionRepository {
     boolean updateEnemyAccessMode(String regionId, String worldName,
                                    net.lumalyte.armbridge.models.EnemyAccessMode mode,
                                    double upchargePercentage);
+
+    /**
+     * Get the write-behind journal of shop transactions (for its statistics)
+     *
+     * @return Transaction journal
+     */
+    TransactionJournal getTransactionJournal();
+
+    /**
+     * Flush pending writes (the shared database connections are closed separately)
+     */
+    void close();
 }
@@ -3,117 +3,174 @@ package net.lumalyte.armbridge.storage;
 import net.lumalyte.armbridge.ARMGuildsBridge;
 import net.lumalyte.armbridge.models.EnemyAccessMode;
 
-import java.io.File;
 import java.sql.*;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
  * SQLite implementation of GuildRegionRepository
+ *
+ * All shop region reads are served from an in-memory index (world name -> region ID -> ShopRegionInfo)
+ * that is loaded once at startup and kept in sync by every write (write-through), along with a
+ * per-guild shop counter used for the shop limit.
  */
 public class GuildRegionRepositoryImpl implements GuildRegionRepository {
 
     private final ARMGuildsBridge plugin;
     private final Logger logger;
-    private Connection connection;
+    private final DatabaseManager database;
+    private final TransactionJournal transactionJournal;
+    private final TransactionRetention transactionRetention;
+    private final SchemaMigrator schemaMigrator;
 
-    public GuildRegionRepositoryImpl(ARMGuildsBridge plugin) {
+    // world name -> region ID -> shop info
+    private final Map<String, Map<String, ShopRegionInfo>> shopIndex = new ConcurrentHashMap<>();
+
+    // guild ID -> number of shop regions (includes slots reserved by registrations in progress)
+    private final Map<UUID, AtomicInteger> shopCounts = new ConcurrentHashMap<>();
+
+    public GuildRegionRepositoryImpl(ARMGuildsBridge plugin, DatabaseManager database) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
-
-        initializeDatabase();
-        initializeSchema();
+        this.database = database;
+        this.schemaMigrator = plugin.getSchemaMigrator();
+
+        loadShopIndex();
+
+        // Shop transactions are written behind by a dedicated thread
+        this.transactionJournal = new TransactionJournal(
+            logger,
+            database,
+            plugin.getConfig().getInt("audit.journal.queue-capacity", 10000),
+            plugin.getConfig().getInt("audit.journal.batch-size", 500),
+            plugin.getConfig().getLong("audit.journal.flush-interval-ms", 1000L),
+            plugin.getConfig().getInt("audit.journal.max-retries", 5)
+        );
+
+        // Old transactions are archived and removed in the background (0 days = keep forever)
+        int retentionDays = plugin.getConfig().getInt("audit.retention-days", 0);
+        if (retentionDays > 0) {
+            this.transactionRetention = new TransactionRetention(
+                logger,
+                database,
+                retentionDays,
+                plugin.getConfig().getBoolean("audit.retention.archive", true),
+                plugin.getConfig().getInt("audit.retention.chunk-size", 1000),
+                plugin.getConfig().getLong("audit.retention.chunk-pause-ms", 50L)
+            );
+            transactionRetention.start(5, plugin.getConfig().getLong("audit.retention.interval-hours", 24L));
+        } else {
+            this.transactionRetention = null;
+        }
     }
 
-    private void initializeDatabase() {
-        try {
-            File dataFolder = plugin.getDataFolder();
-            if (!dataFolder.exists()) {
-                dataFolder.mkdirs();
-            }
-
-            String dbPath = new File(dataFolder, "guild_shops.db").getAbsolutePath();
-            String url = "jdbc:sqlite:" + dbPath;
+    /**
+     * Load every row of arm_guild_shops into the in-memory index
+     */
+    private void loadShopIndex() {
+        String sql = """
+            SELECT region_id, world_name, guild_id, purchase_price, purchased_at,
+                   enemy_access_mode, upcharge_percentage
+            FROM arm_guild_shops
+        """;
 
-            connection = DriverManager.getConnection(url);
-            logger.info("Connected to SQLite database: " + dbPath);
+        shopIndex.clear();
+        shopCounts.clear();
 
+        try {
+            int loaded = database.read(conn -> {
+                int count = 0;
+                PreparedStatement stmt = conn.prepare(sql);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ShopRegionInfo info = readShopRegionInfo(rs);
+                        indexShop(info);
+                        shopCounter(info.getGuildId()).incrementAndGet();
+                        count++;
+                    }
+                }
+                return count;
+            });
+            logger.info("Loaded " + loaded + " guild shop regions into memory");
         } catch (SQLException e) {
-            logger.severe("Failed to initialize database: " + e.getMessage());
+            logger.severe("Failed to load guild shop regions: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    @Override
-    public void initializeSchema() {
-        String createShopsTable = """
-            CREATE TABLE IF NOT EXISTS arm_guild_shops (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                region_id VARCHAR(255) NOT NULL,
-                world_name VARCHAR(255) NOT NULL,
-                guild_id VARCHAR(36) NOT NULL,
-                purchase_price REAL NOT NULL,
-                purchased_at TEXT NOT NULL,
-                UNIQUE(region_id, world_name)
-            )
-        """;
+    private ShopRegionInfo readShopRegionInfo(ResultSet rs) throws SQLException {
+        return new ShopRegionInfo(
+            rs.getString("region_id"),
+            rs.getString("world_name"),
+            UuidCodec.fromBytes(rs.getBytes("guild_id")),
+            rs.getDouble("purchase_price"),
+            Instant.ofEpochMilli(rs.getLong("purchased_at")),
+            EnemyAccessMode.fromCode(rs.getInt("enemy_access_mode")),
+            rs.getDouble("upcharge_percentage")
+        );
+    }
 
-        String createIndexGuild = """
-            CREATE INDEX IF NOT EXISTS idx_guild_shops_guild
-            ON arm_guild_shops(guild_id)
-        """;
+    private void indexShop(ShopRegionInfo info) {
+        shopIndex.computeIfAbsent(info.getWorldName(), w -> new ConcurrentHashMap<>())
+            .put(info.getRegionId(), info);
+    }
 
-        String createTransactionsTable = """
-            CREATE TABLE IF NOT EXISTS arm_shop_transactions (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                guild_id VARCHAR(36) NOT NULL,
-                region_id VARCHAR(255) NOT NULL,
-                transaction_type VARCHAR(50) NOT NULL,
-                amount REAL NOT NULL,
-                description TEXT,
-                actor_uuid VARCHAR(36),
-                created_at TEXT NOT NULL
-            )
-        """;
+    private ShopRegionInfo lookupShop(String regionId, String worldName) {
+        Map<String, ShopRegionInfo> worldShops = shopIndex.get(worldName);
+        return worldShops != null ? worldShops.get(regionId) : null;
+    }
 
-        String createIndexTransactions = """
-            CREATE INDEX IF NOT EXISTS idx_shop_transactions_guild
-            ON arm_shop_transactions(guild_id, created_at)
-        """;
+    private AtomicInteger shopCounter(UUID guildId) {
+        return shopCounts.computeIfAbsent(guildId, id -> new AtomicInteger());
+    }
 
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createShopsTable);
-            stmt.execute(createIndexGuild);
-            stmt.execute(createTransactionsTable);
-            stmt.execute(createIndexTransactions);
-
-            // Add enemy_access_mode and upcharge_percentage columns if they don't exist
-            try {
-                stmt.execute("ALTER TABLE arm_guild_shops ADD COLUMN enemy_access_mode VARCHAR(20) DEFAULT 'BAN'");
-                logger.info("Added enemy_access_mode column to arm_guild_shops");
-            } catch (SQLException e) {
-                // Column already exists, ignore
+    @Override
+    public boolean reserveShopSlot(UUID guildId, int maxShops) {
+        AtomicInteger counter = shopCounter(guildId);
+        while (true) {
+            int current = counter.get();
+            if (maxShops > 0 && current >= maxShops) {
+                return false;
             }
-
-            try {
-                stmt.execute("ALTER TABLE arm_guild_shops ADD COLUMN upcharge_percentage REAL DEFAULT 50.0");
-                logger.info("Added upcharge_percentage column to arm_guild_shops");
-            } catch (SQLException e) {
-                // Column already exists, ignore
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
             }
-
-            logger.info("Database schema initialized successfully");
-        } catch (SQLException e) {
-            logger.severe("Failed to initialize schema: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
     @Override
     public boolean registerGuildShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice) {
+        return registerGuildShopRegion(regionId, worldName, guildId, purchasePrice, 0);
+    }
+
+    @Override
+    public boolean registerGuildShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice,
+                                           int maxShops) {
+        // Reserve the slot first so concurrent purchases cannot both pass the limit
+        if (!reserveShopSlot(guildId, maxShops)) {
+            return false;
+        }
+        return registerReservedShopRegion(regionId, worldName, guildId, purchasePrice);
+    }
+
+    @Override
+    public void releaseShopSlot(UUID guildId) {
+        shopCounter(guildId).decrementAndGet();
+    }
+
+    @Override
+    public boolean registerReservedShopRegion(String regionId, String worldName, UUID guildId, double purchasePrice) {
         // Get default enemy access mode from config
         String defaultMode = plugin.getConfig().getString("enemy-blocking.default-mode", "BAN");
         double defaultUpcharge = plugin.getConfig().getDouble("enemy-blocking.default-upcharge-percentage", 50.0);
@@ -123,17 +180,32 @@ public class GuildRegionRepositoryImpl implements GuildRegionRepository {
             VALUES (?, ?, ?, ?, ?, ?, ?)
         """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, regionId);
-            stmt.setString(2, worldName);
-            stmt.setString(3, guildId.toString());
-            stmt.setDouble(4, purchasePrice);
-            stmt.setString(5, Instant.now().toString());
-            stmt.setString(6, defaultMode);
-            stmt.setDouble(7, defaultUpcharge);
+        EnemyAccessMode enemyAccessMode = EnemyAccessMode.fromString(defaultMode);
+        // Stored with millisecond precision; truncate so the index matches what is reloaded
+        Instant purchasedAt = Instant.ofEpochMilli(System.currentTimeMillis());
 
-            return stmt.executeUpdate() > 0;
+        try {
+            int inserted = database.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, regionId);
+                stmt.setString(2, worldName);
+                stmt.setBytes(3, UuidCodec.toBytes(guildId));
+                stmt.setDouble(4, purchasePrice);
+                stmt.setLong(5, purchasedAt.toEpochMilli());
+                stmt.setInt(6, enemyAccessMode.getCode());
+                stmt.setDouble(7, defaultUpcharge);
+                return stmt.executeUpdate();
+            });
+
+            if (inserted > 0) {
+                indexShop(new ShopRegionInfo(regionId, worldName, guildId, purchasePrice,
+                    purchasedAt, enemyAccessMode, defaultUpcharge));
+                return true;
+            }
+            releaseShopSlot(guildId);
+            return false;
         } catch (SQLException e) {
+            releaseShopSlot(guildId);
             logger.warning("Failed to register guild shop region: " + e.getMessage());
             return false;
         }
@@ -141,96 +213,34 @@ public class GuildRegionRepositoryImpl implements GuildRegionRepository {
 
     @Override
     public UUID getGuildForShopRegion(String regionId, String worldName) {
-        String sql = """
-            SELECT guild_id FROM arm_guild_shops
-            WHERE region_id = ? AND world_name = ?
-        """;
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, regionId);
-            stmt.setString(2, worldName);
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return UUID.fromString(rs.getString("guild_id"));
-            }
-        } catch (SQLException e) {
-            logger.warning("Failed to get guild for shop region: " + e.getMessage());
-        }
-
-        return null;
+        ShopRegionInfo info = lookupShop(regionId, worldName);
+        return info != null ? info.getGuildId() : null;
     }
 
     @Override
     public List<ShopRegionInfo> getGuildShopRegions(UUID guildId) {
         List<ShopRegionInfo> regions = new ArrayList<>();
-        String sql = """
-            SELECT region_id, world_name, guild_id, purchase_price, purchased_at,
-                   enemy_access_mode, upcharge_percentage
-            FROM arm_guild_shops
-            WHERE guild_id = ?
-        """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, guildId.toString());
-
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                String enemyAccessModeStr = rs.getString("enemy_access_mode");
-                EnemyAccessMode enemyAccessMode = enemyAccessModeStr != null ?
-                    EnemyAccessMode.valueOf(enemyAccessModeStr) : EnemyAccessMode.BAN;
-
-                regions.add(new ShopRegionInfo(
-                    rs.getString("region_id"),
-                    rs.getString("world_name"),
-                    UUID.fromString(rs.getString("guild_id")),
-                    rs.getDouble("purchase_price"),
-                    Instant.parse(rs.getString("purchased_at")),
-                    enemyAccessMode,
-                    rs.getDouble("upcharge_percentage")
-                ));
+        for (Map<String, ShopRegionInfo> worldShops : shopIndex.values()) {
+            for (ShopRegionInfo info : worldShops.values()) {
+                if (info.getGuildId().equals(guildId)) {
+                    regions.add(info);
+                }
             }
-        } catch (SQLException e) {
-            logger.warning("Failed to get guild shop regions: " + e.getMessage());
         }
 
         return regions;
     }
 
     @Override
-    public ShopRegionInfo getShopRegionInfo(String regionId, String worldName) {
-        String sql = """
-            SELECT region_id, world_name, guild_id, purchase_price, purchased_at,
-                   enemy_access_mode, upcharge_percentage
-            FROM arm_guild_shops
-            WHERE region_id = ? AND world_name = ?
-        """;
-
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, regionId);
-            stmt.setString(2, worldName);
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                String enemyAccessModeStr = rs.getString("enemy_access_mode");
-                EnemyAccessMode enemyAccessMode = enemyAccessModeStr != null ?
-                    EnemyAccessMode.valueOf(enemyAccessModeStr) : EnemyAccessMode.BAN;
-
-                return new ShopRegionInfo(
-                    rs.getString("region_id"),
-                    rs.getString("world_name"),
-                    UUID.fromString(rs.getString("guild_id")),
-                    rs.getDouble("purchase_price"),
-                    Instant.parse(rs.getString("purchased_at")),
-                    enemyAccessMode,
-                    rs.getDouble("upcharge_percentage")
-                );
-            }
-        } catch (SQLException e) {
-            logger.warning("Failed to get shop region info: " + e.getMessage());
-        }
+    public int getGuildShopCount(UUID guildId) {
+        AtomicInteger counter = shopCounts.get(guildId);
+        return counter != null ? counter.get() : 0;
+    }
 
-        return null;
+    @Override
+    public ShopRegionInfo getShopRegionInfo(String regionId, String worldName) {
+        return lookupShop(regionId, worldName);
     }
 
     @Override
@@ -242,13 +252,26 @@ public class GuildRegionRepositoryImpl implements GuildRegionRepository {
             WHERE region_id = ? AND world_name = ?
         """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, mode.name());
-            stmt.setDouble(2, upchargePercentage);
-            stmt.setString(3, regionId);
-            stmt.setString(4, worldName);
-
-            return stmt.executeUpdate() > 0;
+        try {
+            int updated = database.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setInt(1, mode.getCode());
+                stmt.setDouble(2, upchargePercentage);
+                stmt.setString(3, regionId);
+                stmt.setString(4, worldName);
+                return stmt.executeUpdate();
+            });
+
+            if (updated > 0) {
+                ShopRegionInfo current = lookupShop(regionId, worldName);
+                if (current != null) {
+                    indexShop(new ShopRegionInfo(current.getRegionId(), current.getWorldName(),
+                        current.getGuildId(), current.getPurchasePrice(), current.getPurchasedAt(),
+                        mode, upchargePercentage));
+                }
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             logger.warning("Failed to update enemy access mode: " + e.getMessage());
             return false;
@@ -262,11 +285,19 @@ public class GuildRegionRepositoryImpl implements GuildRegionRepository {
             WHERE region_id = ? AND world_name = ?
         """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, regionId);
-            stmt.setString(2, worldName);
-
-            return stmt.executeUpdate() > 0;
+        try {
+            boolean removed = database.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, regionId);
+                stmt.setString(2, worldName);
+                return stmt.executeUpdate() > 0;
+            });
+            Map<String, ShopRegionInfo> worldShops = shopIndex.get(worldName);
+            ShopRegionInfo removedInfo = worldShops != null ? worldShops.remove(regionId) : null;
+            if (removedInfo != null) {
+                shopCounter(removedInfo.getGuildId()).decrementAndGet();
+            }
+            return removed;
         } catch (SQLException e) {
             logger.warning("Failed to remove guild shop region: " + e.getMessage());
             return false;
@@ -280,10 +311,14 @@ public class GuildRegionRepositoryImpl implements GuildRegionRepository {
             WHERE guild_id = ?
         """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, guildId.toString());
-
-            return stmt.executeUpdate();
+        try {
+            int removed = database.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setBytes(1, UuidCodec.toBytes(guildId));
+                return stmt.executeUpdate();
+            });
+            unindexGuild(guildId);
+            return removed;
         } catch (SQLException e) {
             logger.warning("Failed to remove all guild shop regions: " + e.getMessage());
             return 0;
@@ -291,61 +326,97 @@ public class GuildRegionRepositoryImpl implements GuildRegionRepository {
     }
 
     @Override
-    public boolean logShopTransaction(UUID guildId, String regionId, String transactionType,
-                                      double amount, String description, UUID actorId) {
-        String sql = """
-            INSERT INTO arm_shop_transactions
-            (guild_id, region_id, transaction_type, amount, description, actor_uuid, created_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?)
-        """;
+    public List<ShopRegionInfo> removeGuildData(UUID guildId) {
+        try {
+            database.writeTransaction(conn -> {
+                PreparedStatement shops = conn.prepare("DELETE FROM arm_guild_shops WHERE guild_id = ?");
+                shops.setBytes(1, UuidCodec.toBytes(guildId));
+                shops.executeUpdate();
+
+                PreparedStatement itemShops = conn.prepare("DELETE FROM arm_guild_itemshops WHERE guild_id = ?");
+                itemShops.setString(1, guildId.toString());
+                return itemShops.executeUpdate();
+            });
+            return unindexGuild(guildId);
+        } catch (SQLException e) {
+            logger.severe("Failed to remove data for guild " + guildId + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, guildId.toString());
-            stmt.setString(2, regionId);
-            stmt.setString(3, transactionType);
-            stmt.setDouble(4, amount);
-            stmt.setString(5, description);
-            stmt.setString(6, actorId != null ? actorId.toString() : null);
-            stmt.setString(7, Instant.now().toString());
+    @Override
+    public List<ShopRegionInfo> getAllShopRegions() {
+        List<ShopRegionInfo> regions = new ArrayList<>();
+        for (Map<String, ShopRegionInfo> worldShops : shopIndex.values()) {
+            regions.addAll(worldShops.values());
+        }
+        return regions;
+    }
 
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            logger.warning("Failed to log shop transaction: " + e.getMessage());
-            return false;
+    /**
+     * Drop a guild's regions from the index once their rows are gone
+     *
+     * @return The regions that were dropped
+     */
+    private List<ShopRegionInfo> unindexGuild(UUID guildId) {
+        List<ShopRegionInfo> unindexed = new ArrayList<>();
+        for (Map<String, ShopRegionInfo> worldShops : shopIndex.values()) {
+            Iterator<ShopRegionInfo> it = worldShops.values().iterator();
+            while (it.hasNext()) {
+                ShopRegionInfo info = it.next();
+                if (info.getGuildId().equals(guildId)) {
+                    it.remove();
+                    unindexed.add(info);
+                }
+            }
         }
+        shopCounter(guildId).addAndGet(-unindexed.size());
+        return unindexed;
+    }
+
+    @Override
+    public boolean logShopTransaction(UUID guildId, String regionId, String transactionType,
+                                      double amount, String description, UUID actorId) {
+        return transactionJournal.enqueue(guildId, regionId, transactionType, amount, description, actorId);
     }
 
     @Override
     public List<ShopTransaction> getTransactionHistory(UUID guildId, int limit) {
         List<ShopTransaction> transactions = new ArrayList<>();
         String sql = """
-            SELECT id, guild_id, region_id, transaction_type, amount, description, actor_uuid, created_at
+            SELECT id, region_id, transaction_type, amount, description, actor_uuid, created_at
             FROM arm_shop_transactions
             WHERE guild_id = ?
-            ORDER BY created_at DESC
+            ORDER BY created_at DESC, id DESC
             LIMIT ?
         """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, guildId.toString());
-            stmt.setInt(2, limit);
-
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                String actorUuidStr = rs.getString("actor_uuid");
-                UUID actorId = actorUuidStr != null ? UUID.fromString(actorUuidStr) : null;
-
-                transactions.add(new ShopTransaction(
-                    rs.getInt("id"),
-                    UUID.fromString(rs.getString("guild_id")),
-                    rs.getString("region_id"),
-                    rs.getString("transaction_type"),
-                    rs.getDouble("amount"),
-                    rs.getString("description"),
-                    actorId,
-                    Instant.parse(rs.getString("created_at"))
-                ));
-            }
+        // Checked before the snapshot starts: once applied, the snapshot is sure to see the finished backfill
+        boolean backfillPending = !schemaMigrator.isApplied(SchemaMigrations.TRANSACTIONS_V2_BACKFILL);
+        try {
+            // One snapshot for both tables, so a backfill chunk committing in between is neither missed nor doubled
+            database.readTransaction(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setBytes(1, UuidCodec.toBytes(guildId));
+                stmt.setInt(2, limit);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        transactions.add(readTransaction(rs, guildId));
+                    }
+                }
+
+                // Rows not yet copied by the schema v2 backfill
+                if (backfillPending) {
+                    transactions.addAll(SchemaMigrations.readLegacyHistory(conn, logger, guildId, limit));
+                    transactions.sort(Comparator.comparing(ShopTransaction::getCreatedAt).reversed());
+                    if (transactions.size() > limit) {
+                        transactions.subList(limit, transactions.size()).clear();
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logger.warning("Failed to get transaction history: " + e.getMessage());
         }
@@ -353,14 +424,180 @@ public class GuildRegionRepositoryImpl implements GuildRegionRepository {
         return transactions;
     }
 
-    public void close() {
+    @Override
+    public TransactionCursor streamTransactionHistory(UUID guildId, TransactionCursor after, String regionId,
+                                                      String transactionType, int limit,
+                                                      Consumer<ShopTransaction> consumer) {
+        // Keyset paging on (created_at, id): served from idx_shop_transactions_history without a sort.
+        // Each filter combination is its own SQL text so every variant stays a simple cached index range scan.
+        StringBuilder sql = new StringBuilder("""
+            SELECT id, region_id, transaction_type, amount, description, actor_uuid, created_at
+            FROM arm_shop_transactions
+            WHERE guild_id = ?""");
+        if (after != null) {
+            sql.append(" AND (created_at, id) < (?, ?)");
+        }
+        if (regionId != null) {
+            sql.append(" AND region_id = ?");
+        }
+        if (transactionType != null) {
+            sql.append(" AND transaction_type = ?");
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+
+        // Legacy rows have their own ids and text timestamps, so they can't share the keyset cursor
+        if (!schemaMigrator.isApplied(SchemaMigrations.TRANSACTIONS_V2_BACKFILL)) {
+            throw new IllegalStateException("Transaction history is still being migrated - paging is available " +
+                "once the background copy has finished");
+        }
+
+        // Read the page first and hand it over after the connection is released, so a consumer that calls back
+        // into the repository can't exhaust the read pool
+        List<ShopTransaction> page = new ArrayList<>();
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                logger.info("Database connection closed");
-            }
+            database.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql.toString());
+                int index = 1;
+                stmt.setBytes(index++, UuidCodec.toBytes(guildId));
+                if (after != null) {
+                    stmt.setLong(index++, after.getCreatedAtMillis());
+                    stmt.setLong(index++, after.getId());
+                }
+                if (regionId != null) {
+                    stmt.setString(index++, regionId);
+                }
+                if (transactionType != null) {
+                    stmt.setString(index++, transactionType);
+                }
+                stmt.setInt(index, limit);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(readTransaction(rs, guildId));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            logger.warning("Failed to stream transaction history: " + e.getMessage());
+            return null;
+        }
+
+        page.forEach(consumer);
+
+        // A short page means there is nothing older left
+        return page.size() == limit && !page.isEmpty() ? TransactionCursor.after(page.get(page.size() - 1)) : null;
+    }
+
+    @Override
+    public List<TransactionRollup> getTransactionRollups(UUID guildId, String regionId,
+                                                         LocalDate fromDay, LocalDate toDay) {
+        List<TransactionRollup> rollups = new ArrayList<>();
+        String sql = """
+            SELECT region_id, day, transaction_type, total, count, min_amount, max_amount
+            FROM arm_shop_transaction_rollups
+            WHERE guild_id = ? AND day BETWEEN ? AND ?
+        """ + (regionId != null ? " AND region_id = ?" : "") +
+            " ORDER BY day, region_id, transaction_type";
+
+        try {
+            database.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setBytes(1, UuidCodec.toBytes(guildId));
+                stmt.setLong(2, fromDay.toEpochDay());
+                stmt.setLong(3, toDay.toEpochDay());
+                if (regionId != null) {
+                    stmt.setString(4, regionId);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rollups.add(new TransactionRollup(
+                            rs.getString("region_id"),
+                            LocalDate.ofEpochDay(rs.getLong("day")),
+                            rs.getString("transaction_type"),
+                            rs.getDouble("total"),
+                            rs.getLong("count"),
+                            rs.getDouble("min_amount"),
+                            rs.getDouble("max_amount")
+                        ));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            logger.warning("Failed to get transaction rollups: " + e.getMessage());
+        }
+
+        return rollups;
+    }
+
+    @Override
+    public Map<String, TransactionRollup> getTransactionTotals(UUID guildId, LocalDate fromDay, LocalDate toDay) {
+        Map<String, TransactionRollup> totals = new LinkedHashMap<>();
+        String sql = """
+            SELECT transaction_type, SUM(total) AS total, SUM(count) AS count,
+                   MIN(min_amount) AS min_amount, MAX(max_amount) AS max_amount
+            FROM arm_shop_transaction_rollups
+            WHERE guild_id = ? AND day BETWEEN ? AND ?
+            GROUP BY transaction_type
+            ORDER BY transaction_type
+        """;
+
+        try {
+            database.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setBytes(1, UuidCodec.toBytes(guildId));
+                stmt.setLong(2, fromDay.toEpochDay());
+                stmt.setLong(3, toDay.toEpochDay());
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String transactionType = rs.getString("transaction_type");
+                        totals.put(transactionType, new TransactionRollup(
+                            null,
+                            null,
+                            transactionType,
+                            rs.getDouble("total"),
+                            rs.getLong("count"),
+                            rs.getDouble("min_amount"),
+                            rs.getDouble("max_amount")
+                        ));
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            logger.warning("Error closing database connection: " + e.getMessage());
+            logger.warning("Failed to get transaction totals: " + e.getMessage());
+        }
+
+        return totals;
+    }
+
+    private ShopTransaction readTransaction(ResultSet rs, UUID guildId) throws SQLException {
+        return new ShopTransaction(
+            rs.getInt("id"),
+            guildId,
+            rs.getString("region_id"),
+            rs.getString("transaction_type"),
+            rs.getDouble("amount"),
+            rs.getString("description"),
+            UuidCodec.fromBytes(rs.getBytes("actor_uuid")),
+            Instant.ofEpochMilli(rs.getLong("created_at"))
+        );
+    }
+
+    @Override
+    public TransactionJournal getTransactionJournal() {
+        return transactionJournal;
+    }
+
+    @Override
+    public void close() {
+        // The shared DatabaseManager is closed by the plugin once every store is done with it
+        if (transactionRetention != null) {
+            transactionRetention.stop();
         }
+        transactionJournal.close();
     }
 }
@@ -0,0 +1,105 @@
+package net.lumalyte.armbridge.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Accumulates transactions per (guild, region, UTC day, type) and upserts them into
+ * arm_shop_transaction_rollups
+ *
+ * Write it in the same database transaction as the rows it describes, so rollups never drift from the ledger.
+ */
+class RollupBatch {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO arm_shop_transaction_rollups
+        (guild_id, region_id, day, transaction_type, total, count, min_amount, max_amount)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (guild_id, region_id, day, transaction_type) DO UPDATE SET
+            total = total + excluded.total,
+            count = count + excluded.count,
+            min_amount = MIN(min_amount, excluded.min_amount),
+            max_amount = MAX(max_amount, excluded.max_amount)
+    """;
+
+    private final Map<Key, Totals> totals = new HashMap<>();
+
+    void add(UUID guildId, String regionId, String transactionType, double amount, long createdAtMillis) {
+        Key key = new Key(guildId, regionId, Math.floorDiv(createdAtMillis, MILLIS_PER_DAY), transactionType);
+        Totals entry = totals.computeIfAbsent(key, k -> new Totals());
+        entry.total += amount;
+        entry.count++;
+        entry.min = Math.min(entry.min, amount);
+        entry.max = Math.max(entry.max, amount);
+    }
+
+    /**
+     * Upsert the accumulated totals (one statement execution per distinct key)
+     */
+    void write(DatabaseConnection conn) throws SQLException {
+        if (totals.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement stmt = conn.prepare(UPSERT_SQL);
+        for (Map.Entry<Key, Totals> entry : totals.entrySet()) {
+            Key key = entry.getKey();
+            Totals value = entry.getValue();
+            stmt.setBytes(1, UuidCodec.toBytes(key.guildId));
+            stmt.setString(2, key.regionId);
+            stmt.setLong(3, key.day);
+            stmt.setString(4, key.transactionType);
+            stmt.setDouble(5, value.total);
+            stmt.setLong(6, value.count);
+            stmt.setDouble(7, value.min);
+            stmt.setDouble(8, value.max);
+            stmt.addBatch();
+        }
+        stmt.executeBatch();
+    }
+
+    private static final class Key {
+        private final UUID guildId;
+        private final String regionId;
+        private final long day;
+        private final String transactionType;
+
+        private Key(UUID guildId, String regionId, long day, String transactionType) {
+            this.guildId = guildId;
+            this.regionId = regionId;
+            this.day = day;
+            this.transactionType = transactionType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return day == other.day && guildId.equals(other.guildId) &&
+                regionId.equals(other.regionId) && transactionType.equals(other.transactionType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(guildId, regionId, day, transactionType);
+        }
+    }
+
+    private static final class Totals {
+        private double total;
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+    }
+}
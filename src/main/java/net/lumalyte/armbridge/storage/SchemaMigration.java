@@ -0,0 +1,36 @@
+package net.lumalyte.armbridge.storage;
+
+import java.sql.SQLException;
+
+/**
+ * A single versioned change to guild_shops.db, applied exactly once by SchemaMigrator
+ */
+public interface SchemaMigration {
+
+    /**
+     * @return Unique version number; migrations are applied in ascending order
+     */
+    int getVersion();
+
+    /**
+     * @return Short description recorded in schema_version and the startup log
+     */
+    String getDescription();
+
+    /**
+     * Apply the change
+     * Runs inside a transaction on the writer connection together with the schema_version insert,
+     * so a failed migration leaves no partial changes and is retried on the next start.
+     *
+     * @param connection Writer connection
+     */
+    void apply(DatabaseConnection connection) throws SQLException;
+
+    /**
+     * Whether apply runs inside a transaction (statements such as VACUUM cannot)
+     * Non-transactional migrations must be safe to re-run, since a failure can leave them half applied.
+     */
+    default boolean isTransactional() {
+        return true;
+    }
+}
@@ -0,0 +1,649 @@
+package net.lumalyte.armbridge.storage;
+
+import net.lumalyte.armbridge.models.EnemyAccessMode;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Schema history of guild_shops.db
+ *
+ * Migrations never change once released; add a new one with the next version number instead.
+ * Steps that convert existing tables check the current layout first, so databases created before
+ * schema_version existed (where every step runs once) are upgraded from whatever state they are in.
+ */
+public final class SchemaMigrations {
+
+    /**
+     * Version of the background copy of legacy shop transactions into the v2 table
+     */
+    public static final int TRANSACTIONS_V2_BACKFILL = 5;
+
+    static final String LEGACY_TRANSACTIONS_TABLE = "arm_shop_transactions_legacy";
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * @param logger Plugin logger
+     * @param chunkSize Rows copied per transaction by backfill migrations
+     * @return Every migration, in version order
+     */
+    public static List<SchemaMigration> all(Logger logger, int chunkSize) {
+        List<SchemaMigration> migrations = new ArrayList<>();
+        migrations.add(new CreateTables());
+        migrations.add(new AddEnemyAccessColumns());
+        migrations.add(new ConvertShopsToV2(logger));
+        migrations.add(new DetachLegacyTransactions());
+        migrations.add(new BackfillTransactionsV2(logger, chunkSize));
+        migrations.add(new CreateHistoryIndex());
+        migrations.add(new CreateTransactionRollups());
+        migrations.add(new CreateTransactionArchive());
+        migrations.add(new EnableIncrementalVacuum(logger));
+        migrations.add(new CreateItemShopIndexes());
+        return migrations;
+    }
+
+    /**
+     * 1: Original layout (text UUIDs and timestamps)
+     */
+    private static final class CreateTables implements SchemaMigration {
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Create guild shop, transaction and ItemShop tables";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS arm_guild_shops (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        region_id VARCHAR(255) NOT NULL,
+                        world_name VARCHAR(255) NOT NULL,
+                        guild_id VARCHAR(36) NOT NULL,
+                        purchase_price REAL NOT NULL,
+                        purchased_at TEXT NOT NULL,
+                        UNIQUE(region_id, world_name)
+                    )
+                """);
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_guild_shops_guild ON arm_guild_shops(guild_id)");
+
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS arm_shop_transactions (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        guild_id VARCHAR(36) NOT NULL,
+                        region_id VARCHAR(255) NOT NULL,
+                        transaction_type VARCHAR(50) NOT NULL,
+                        amount REAL NOT NULL,
+                        description TEXT,
+                        actor_uuid VARCHAR(36),
+                        created_at TEXT NOT NULL
+                    )
+                """);
+                stmt.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_shop_transactions_guild
+                    ON arm_shop_transactions(guild_id, created_at)
+                """);
+
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS arm_guild_itemshops (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        world_name TEXT NOT NULL,
+                        x INTEGER NOT NULL,
+                        y INTEGER NOT NULL,
+                        z INTEGER NOT NULL,
+                        guild_id TEXT NOT NULL,
+                        creator_uuid TEXT NOT NULL,
+                        created_at INTEGER NOT NULL,
+                        UNIQUE(world_name, x, y, z)
+                    )
+                """);
+            }
+        }
+    }
+
+    /**
+     * 2: Enemy access settings on shop regions
+     */
+    private static final class AddEnemyAccessColumns implements SchemaMigration {
+        @Override
+        public int getVersion() {
+            return 2;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Add enemy access mode and upcharge to guild shops";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            Map<String, String> columns = getColumns(conn, "arm_guild_shops");
+            try (Statement stmt = conn.createStatement()) {
+                if (!columns.containsKey("enemy_access_mode")) {
+                    stmt.execute("ALTER TABLE arm_guild_shops ADD COLUMN enemy_access_mode VARCHAR(20) DEFAULT 'BAN'");
+                }
+                if (!columns.containsKey("upcharge_percentage")) {
+                    stmt.execute("ALTER TABLE arm_guild_shops ADD COLUMN upcharge_percentage REAL DEFAULT 50.0");
+                }
+            }
+        }
+    }
+
+    /**
+     * 3: Shop regions to schema v2 (BLOB UUIDs, epoch millis, EnemyAccessMode codes)
+     * The table is small, so it is rebuilt in place.
+     */
+    private static final class ConvertShopsToV2 implements SchemaMigration {
+        private final Logger logger;
+
+        private ConvertShopsToV2(Logger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public int getVersion() {
+            return 3;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Convert guild shops to binary schema v2";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            if ("BLOB".equalsIgnoreCase(getColumns(conn, "arm_guild_shops").get("guild_id"))) {
+                return; // Already converted before schema_version existed
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP INDEX IF EXISTS idx_guild_shops_guild");
+                stmt.execute("ALTER TABLE arm_guild_shops RENAME TO arm_guild_shops_legacy");
+                stmt.execute("""
+                    CREATE TABLE arm_guild_shops (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        region_id VARCHAR(255) NOT NULL,
+                        world_name VARCHAR(255) NOT NULL,
+                        guild_id BLOB NOT NULL,
+                        purchase_price REAL NOT NULL,
+                        purchased_at INTEGER NOT NULL,
+                        enemy_access_mode INTEGER NOT NULL DEFAULT 0,
+                        upcharge_percentage REAL NOT NULL DEFAULT 50.0,
+                        UNIQUE(region_id, world_name)
+                    )
+                """);
+                stmt.execute("CREATE INDEX idx_guild_shops_guild ON arm_guild_shops(guild_id)");
+            }
+
+            String insert = """
+                INSERT INTO arm_guild_shops
+                (region_id, world_name, guild_id, purchase_price, purchased_at, enemy_access_mode, upcharge_percentage)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+            try (Statement query = conn.createStatement();
+                 ResultSet rs = query.executeQuery("""
+                     SELECT region_id, world_name, guild_id, purchase_price, purchased_at,
+                            enemy_access_mode, upcharge_percentage
+                     FROM arm_guild_shops_legacy
+                 """)) {
+                PreparedStatement stmt = conn.prepare(insert);
+                while (rs.next()) {
+                    String regionId = rs.getString("region_id");
+                    UUID guildId = parseUuid(rs.getString("guild_id"));
+                    if (guildId == null) {
+                        logger.warning("Skipping shop region " + regionId + " with invalid guild ID during migration");
+                        continue;
+                    }
+
+                    String modeName = rs.getString("enemy_access_mode");
+                    EnemyAccessMode mode = modeName != null ?
+                        EnemyAccessMode.fromString(modeName) : EnemyAccessMode.getDefault();
+
+                    stmt.setString(1, regionId);
+                    stmt.setString(2, rs.getString("world_name"));
+                    stmt.setBytes(3, UuidCodec.toBytes(guildId));
+                    stmt.setDouble(4, rs.getDouble("purchase_price"));
+                    stmt.setLong(5, parseEpochMillis(logger, rs.getString("purchased_at")));
+                    stmt.setInt(6, mode.getCode());
+                    stmt.setDouble(7, rs.getDouble("upcharge_percentage"));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE arm_guild_shops_legacy");
+            }
+        }
+    }
+
+    /**
+     * 4: New schema v2 transaction table; legacy rows are moved aside for the backfill
+     */
+    private static final class DetachLegacyTransactions implements SchemaMigration {
+        @Override
+        public int getVersion() {
+            return 4;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Create binary schema v2 shop transaction table";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            if ("BLOB".equalsIgnoreCase(getColumns(conn, "arm_shop_transactions").get("guild_id"))) {
+                // Already converted before schema_version existed; if the legacy table is gone, migration 1
+                // may have recreated the legacy index name on the v2 table, where it duplicates ours
+                if (!tableExists(conn, LEGACY_TRANSACTIONS_TABLE)) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("DROP INDEX IF EXISTS idx_shop_transactions_guild");
+                    }
+                }
+                return;
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                // The legacy index stays with the renamed table and serves merged history reads
+                stmt.execute("ALTER TABLE arm_shop_transactions RENAME TO " + LEGACY_TRANSACTIONS_TABLE);
+                stmt.execute("""
+                    CREATE TABLE arm_shop_transactions (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        guild_id BLOB NOT NULL,
+                        region_id VARCHAR(255) NOT NULL,
+                        transaction_type VARCHAR(50) NOT NULL,
+                        amount REAL NOT NULL,
+                        description TEXT,
+                        actor_uuid BLOB,
+                        created_at INTEGER NOT NULL
+                    )
+                """);
+                stmt.execute("""
+                    CREATE INDEX idx_shop_transactions_guild_created
+                    ON arm_shop_transactions(guild_id, created_at)
+                """);
+
+                // New rows must get IDs above every legacy ID so copied rows keep their original IDs
+                stmt.execute("INSERT INTO sqlite_sequence (name, seq) SELECT 'arm_shop_transactions', " +
+                    "COALESCE(MAX(id), 0) FROM " + LEGACY_TRANSACTIONS_TABLE);
+            }
+        }
+    }
+
+    /**
+     * 5: Copy legacy shop transactions into the v2 table in the background
+     * Each chunk deletes the rows it copied, so the legacy table always holds exactly the rows left to copy.
+     */
+    private static final class BackfillTransactionsV2 implements BackfillMigration {
+        private static final String SELECT_CHUNK = """
+            SELECT id, guild_id, region_id, transaction_type, amount, description, actor_uuid, created_at
+            FROM arm_shop_transactions_legacy
+            ORDER BY id
+            LIMIT ?
+        """;
+
+        private static final String INSERT_ROW = """
+            INSERT OR IGNORE INTO arm_shop_transactions
+            (id, guild_id, region_id, transaction_type, amount, description, actor_uuid, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+        private static final String DELETE_CHUNK = "DELETE FROM arm_shop_transactions_legacy WHERE id <= ?";
+
+        private final Logger logger;
+        private final int chunkSize;
+
+        private BackfillTransactionsV2(Logger logger, int chunkSize) {
+            this.logger = logger;
+            this.chunkSize = Math.max(1, chunkSize);
+        }
+
+        @Override
+        public int getVersion() {
+            return TRANSACTIONS_V2_BACKFILL;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Copy shop transactions to binary schema v2";
+        }
+
+        @Override
+        public int migrateChunk(DatabaseConnection conn) throws SQLException {
+            if (!tableExists(conn, LEGACY_TRANSACTIONS_TABLE)) {
+                return 0;
+            }
+
+            PreparedStatement select = conn.prepare(SELECT_CHUNK);
+            select.setInt(1, chunkSize);
+
+            PreparedStatement insert = conn.prepare(INSERT_ROW);
+            RollupBatch rollups = new RollupBatch();
+            int rows = 0;
+            long lastId = 0;
+
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                    lastId = rs.getLong("id");
+
+                    UUID guildId = parseUuid(rs.getString("guild_id"));
+                    if (guildId == null) {
+                        logger.warning("Skipping shop transaction " + lastId + " with invalid guild ID during migration");
+                        continue;
+                    }
+
+                    insert.setLong(1, lastId);
+                    String regionId = rs.getString("region_id");
+                    String transactionType = rs.getString("transaction_type");
+                    double amount = rs.getDouble("amount");
+                    long createdAt = parseEpochMillis(logger, rs.getString("created_at"));
+
+                    insert.setBytes(2, UuidCodec.toBytes(guildId));
+                    insert.setString(3, regionId);
+                    insert.setString(4, transactionType);
+                    insert.setDouble(5, amount);
+                    insert.setString(6, rs.getString("description"));
+                    insert.setBytes(7, UuidCodec.toBytes(parseUuid(rs.getString("actor_uuid"))));
+                    insert.setLong(8, createdAt);
+                    insert.addBatch();
+
+                    // Rollups (migration 7) were built from the v2 table only; copied rows are added as they arrive
+                    rollups.add(guildId, regionId, transactionType, amount, createdAt);
+                }
+            }
+
+            if (rows > 0) {
+                insert.executeBatch();
+                rollups.write(conn);
+                PreparedStatement delete = conn.prepare(DELETE_CHUNK);
+                delete.setLong(1, lastId);
+                delete.executeUpdate();
+            }
+            return rows;
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS " + LEGACY_TRANSACTIONS_TABLE);
+            }
+        }
+    }
+
+    /**
+     * 6: Covering index for keyset-paged transaction history
+     * Ordered by (guild_id, created_at, id) so pages need no sort, and carries every selected column so
+     * region/type filters and page rows are served from the index alone. Replaces the (guild_id, created_at) index.
+     */
+    private static final class CreateHistoryIndex implements SchemaMigration {
+        @Override
+        public int getVersion() {
+            return 6;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Create covering index for transaction history paging";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_shop_transactions_history
+                    ON arm_shop_transactions(guild_id, created_at, id, region_id, transaction_type,
+                                             amount, actor_uuid, description)
+                """);
+                stmt.execute("DROP INDEX IF EXISTS idx_shop_transactions_guild_created");
+            }
+        }
+    }
+
+    /**
+     * 7: Per guild/region/day/type transaction rollups, seeded from the existing ledger
+     * Kept current by the transaction journal (and the v2 backfill) in the same transaction as each batch.
+     */
+    private static final class CreateTransactionRollups implements SchemaMigration {
+        @Override
+        public int getVersion() {
+            return 7;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Create and seed shop transaction rollups";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS arm_shop_transaction_rollups (
+                        guild_id BLOB NOT NULL,
+                        region_id VARCHAR(255) NOT NULL,
+                        day INTEGER NOT NULL,
+                        transaction_type VARCHAR(50) NOT NULL,
+                        total REAL NOT NULL,
+                        count INTEGER NOT NULL,
+                        min_amount REAL NOT NULL,
+                        max_amount REAL NOT NULL,
+                        PRIMARY KEY (guild_id, region_id, day, transaction_type)
+                    ) WITHOUT ROWID
+                """);
+                stmt.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_shop_transaction_rollups_day
+                    ON arm_shop_transaction_rollups(guild_id, day)
+                """);
+
+                // day is the UTC epoch day (86400000 ms per day)
+                stmt.execute("""
+                    INSERT INTO arm_shop_transaction_rollups
+                    (guild_id, region_id, day, transaction_type, total, count, min_amount, max_amount)
+                    SELECT guild_id, region_id, created_at / 86400000, transaction_type,
+                           SUM(amount), COUNT(*), MIN(amount), MAX(amount)
+                    FROM arm_shop_transactions
+                    GROUP BY guild_id, region_id, created_at / 86400000, transaction_type
+                """);
+            }
+        }
+    }
+
+    /**
+     * 8: Compressed archive of transactions removed by the retention policy
+     * Each row holds one retention chunk encoded by TransactionArchive.
+     */
+    private static final class CreateTransactionArchive implements SchemaMigration {
+        @Override
+        public int getVersion() {
+            return 8;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Create shop transaction archive";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS arm_shop_transactions_archive (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        first_transaction_id INTEGER NOT NULL,
+                        last_transaction_id INTEGER NOT NULL,
+                        oldest_created_at INTEGER NOT NULL,
+                        newest_created_at INTEGER NOT NULL,
+                        row_count INTEGER NOT NULL,
+                        archived_at INTEGER NOT NULL,
+                        data BLOB NOT NULL
+                    )
+                """);
+            }
+        }
+    }
+
+    /**
+     * 9: Incremental auto-vacuum, so pages freed by retention can be returned to the file system in steps
+     * New databases get it when they are created (DatabaseManager.open). Existing ones need a full VACUUM to
+     * switch modes, which is too slow for startup, so this only tells the admin how to opt in.
+     */
+    private static final class EnableIncrementalVacuum implements SchemaMigration {
+        private final Logger logger;
+
+        EnableIncrementalVacuum(Logger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public int getVersion() {
+            return 9;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Enable incremental auto-vacuum";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                if (rs.next() && rs.getInt(1) != 2) {
+                    logger.info("Database does not use incremental auto-vacuum, so space freed by retention is reused " +
+                        "but not returned to the file system. Set storage.vacuum.convert-to-incremental to true to " +
+                        "convert it in the background (one full VACUUM).");
+                }
+            }
+        }
+    }
+
+    /**
+     * 10: ItemShop indexes - by chunk (a whole chunk's shops load in one query) and by guild
+     * The chunk index is on the expressions (x >> 4, z >> 4), so lookups must use exactly those expressions.
+     */
+    private static final class CreateItemShopIndexes implements SchemaMigration {
+        @Override
+        public int getVersion() {
+            return 10;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Create ItemShop chunk and guild indexes";
+        }
+
+        @Override
+        public void apply(DatabaseConnection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_guild_itemshops_chunk
+                    ON arm_guild_itemshops(world_name, (x >> 4), (z >> 4), x, y, z, guild_id)
+                """);
+                stmt.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_guild_itemshops_guild
+                    ON arm_guild_itemshops(guild_id)
+                """);
+            }
+        }
+    }
+
+    /**
+     * Read a guild's not-yet-copied legacy transactions, newest first
+     * Only valid while TRANSACTIONS_V2_BACKFILL has not been applied.
+     */
+    static List<ShopTransaction> readLegacyHistory(DatabaseConnection conn, Logger logger, UUID guildId, int limit)
+            throws SQLException {
+        List<ShopTransaction> transactions = new ArrayList<>();
+        if (!tableExists(conn, LEGACY_TRANSACTIONS_TABLE)) {
+            return transactions;
+        }
+
+        PreparedStatement stmt = conn.prepare("""
+            SELECT id, region_id, transaction_type, amount, description, actor_uuid, created_at
+            FROM arm_shop_transactions_legacy
+            WHERE guild_id = ?
+            ORDER BY created_at DESC
+            LIMIT ?
+        """);
+        stmt.setString(1, guildId.toString());
+        stmt.setInt(2, limit);
+
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                transactions.add(new ShopTransaction(
+                    rs.getInt("id"),
+                    guildId,
+                    rs.getString("region_id"),
+                    rs.getString("transaction_type"),
+                    rs.getDouble("amount"),
+                    rs.getString("description"),
+                    parseUuid(rs.getString("actor_uuid")),
+                    Instant.ofEpochMilli(parseEpochMillis(logger, rs.getString("created_at")))
+                ));
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * @return Column name -> declared type, empty if the table does not exist
+     */
+    private static Map<String, String> getColumns(DatabaseConnection conn, String table) throws SQLException {
+        Map<String, String> columns = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.put(rs.getString("name"), rs.getString("type"));
+            }
+        }
+        return columns;
+    }
+
+    private static boolean tableExists(DatabaseConnection conn, String table) throws SQLException {
+        PreparedStatement stmt = conn.prepare("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?");
+        stmt.setString(1, table);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long parseEpochMillis(Logger logger, String value) {
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            logger.warning("Invalid legacy timestamp '" + value + "', storing as epoch 0");
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package net.lumalyte.armbridge.storage;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Applies versioned schema migrations to guild_shops.db
+ *
+ * Applied versions are recorded in schema_version with their duration, so each migration runs once.
+ * Schema migrations run synchronously at startup in version order, each in its own transaction
+ * (unless it opts out, e.g. for VACUUM).
+ * Backfill migrations run afterwards on a background thread, one chunk per transaction.
+ */
+public class SchemaMigrator {
+
+    private static final String CREATE_VERSION_TABLE = """
+        CREATE TABLE IF NOT EXISTS schema_version (
+            version INTEGER PRIMARY KEY,
+            description TEXT NOT NULL,
+            applied_at INTEGER NOT NULL,
+            duration_ms INTEGER NOT NULL
+        )
+    """;
+
+    private static final String INSERT_VERSION = """
+        INSERT INTO schema_version (version, description, applied_at, duration_ms)
+        VALUES (?, ?, ?, ?)
+    """;
+
+    private final Logger logger;
+    private final DatabaseManager database;
+    private final List<SchemaMigration> migrations;
+    private final long chunkPauseMs;
+    private final Set<Integer> appliedVersions = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private Thread backfillThread;
+
+    /**
+     * @param logger Plugin logger
+     * @param database Shared database
+     * @param migrations Every known migration (any order)
+     * @param chunkPauseMs Pause between backfill chunks so live writes are not starved
+     */
+    public SchemaMigrator(Logger logger, DatabaseManager database, List<SchemaMigration> migrations,
+                          long chunkPauseMs) {
+        this.logger = logger;
+        this.database = database;
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort(Comparator.comparingInt(SchemaMigration::getVersion));
+        this.chunkPauseMs = Math.max(0, chunkPauseMs);
+    }
+
+    /**
+     * Apply every pending schema migration (backfills are started separately by startBackfills)
+     *
+     * @throws SQLException if a migration fails; it is rolled back and retried on the next start
+     */
+    public void migrate() throws SQLException {
+        int latestKnown = 0;
+        database.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_VERSION_TABLE);
+                try (ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+                    while (rs.next()) {
+                        appliedVersions.add(rs.getInt("version"));
+                    }
+                }
+            }
+            return null;
+        });
+
+        int applied = 0;
+        for (SchemaMigration migration : migrations) {
+            latestKnown = Math.max(latestKnown, migration.getVersion());
+            if (migration instanceof BackfillMigration || isApplied(migration.getVersion())) {
+                continue;
+            }
+
+            long started = System.nanoTime();
+            if (migration.isTransactional()) {
+                database.writeTransaction(conn -> {
+                    migration.apply(conn);
+                    recordVersion(conn, migration, started);
+                    return null;
+                });
+            } else {
+                database.write(conn -> {
+                    migration.apply(conn);
+                    recordVersion(conn, migration, started);
+                    return null;
+                });
+            }
+            appliedVersions.add(migration.getVersion());
+            applied++;
+
+            logger.info("Applied schema migration " + migration.getVersion() + " (" +
+                migration.getDescription() + ") in " + elapsedMs(started) + "ms");
+        }
+
+        for (int version : appliedVersions) {
+            if (version > latestKnown) {
+                logger.warning("Database has schema version " + version + ", newer than this plugin knows (" +
+                    latestKnown + ") - was the plugin downgraded?");
+                break;
+            }
+        }
+
+        if (applied == 0) {
+            logger.info("Database schema is up to date");
+        }
+    }
+
+    /**
+     * Start running pending backfill migrations in the background (no-op if none are pending)
+     */
+    public void startBackfills() {
+        List<BackfillMigration> pending = new ArrayList<>();
+        for (SchemaMigration migration : migrations) {
+            if (migration instanceof BackfillMigration && !isApplied(migration.getVersion())) {
+                pending.add((BackfillMigration) migration);
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        backfillThread = new Thread(() -> runBackfills(pending), "ARMGuildsBridge-SchemaBackfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
+    }
+
+    /**
+     * Whether a migration has been applied (backfills count once their final chunk is done)
+     */
+    public boolean isApplied(int version) {
+        return appliedVersions.contains(version);
+    }
+
+    /**
+     * Stop the backfill thread after its current chunk; unfinished backfills resume on the next start
+     */
+    public void stop() {
+        running = false;
+        if (backfillThread != null) {
+            backfillThread.interrupt();
+            try {
+                backfillThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runBackfills(List<BackfillMigration> pending) {
+        for (BackfillMigration migration : pending) {
+            long started = System.nanoTime();
+            long rows = 0;
+
+            try {
+                while (running) {
+                    int processed = database.writeTransaction(migration::migrateChunk);
+                    if (processed == 0) {
+                        break;
+                    }
+                    rows += processed;
+                    Thread.sleep(chunkPauseMs);
+                }
+
+                if (!running) {
+                    logger.info("Paused schema migration " + migration.getVersion() + " after " + rows +
+                        " rows; it will resume on next start");
+                    return;
+                }
+
+                // Nothing is left to migrate, so readers can stop looking at the source data before it goes
+                appliedVersions.add(migration.getVersion());
+                database.writeTransaction(conn -> {
+                    migration.apply(conn);
+                    recordVersion(conn, migration, started);
+                    return null;
+                });
+
+                logger.info("Applied schema migration " + migration.getVersion() + " (" +
+                    migration.getDescription() + "): " + rows + " rows in " + elapsedMs(started) + "ms");
+            } catch (InterruptedException e) {
+                logger.info("Paused schema migration " + migration.getVersion() + " after " + rows +
+                    " rows; it will resume on next start");
+                return;
+            } catch (SQLException e) {
+                logger.severe("Schema migration " + migration.getVersion() + " failed after " + rows +
+                    " rows: " + e.getMessage());
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    private void recordVersion(DatabaseConnection conn, SchemaMigration migration, long startedNanos)
+            throws SQLException {
+        PreparedStatement stmt = conn.prepare(INSERT_VERSION);
+        stmt.setInt(1, migration.getVersion());
+        stmt.setString(2, migration.getDescription());
+        stmt.setLong(3, System.currentTimeMillis());
+        stmt.setLong(4, elapsedMs(startedNanos));
+        stmt.executeUpdate();
+    }
+
+    private long elapsedMs(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+}
@@ -0,0 +1,87 @@
+package net.lumalyte.armbridge.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed encoding of archived shop transactions (the data column of arm_shop_transactions_archive)
+ *
+ * Format: gzip of [format version byte][row count int] followed by, per row, id long, guild UUID (2 longs),
+ * region UTF, type UTF, amount double, description (present flag + UTF), actor (present flag + 2 longs)
+ * and created_at epoch millis long.
+ */
+final class TransactionArchive {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private TransactionArchive() {
+    }
+
+    static byte[] encode(List<ShopTransaction> transactions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(transactions.size());
+            for (ShopTransaction tx : transactions) {
+                out.writeLong(tx.getId());
+                writeUuid(out, tx.getGuildId());
+                out.writeUTF(tx.getRegionId());
+                out.writeUTF(tx.getTransactionType());
+                out.writeDouble(tx.getAmount());
+                out.writeBoolean(tx.getDescription() != null);
+                if (tx.getDescription() != null) {
+                    out.writeUTF(tx.getDescription());
+                }
+                out.writeBoolean(tx.getActorId() != null);
+                if (tx.getActorId() != null) {
+                    writeUuid(out, tx.getActorId());
+                }
+                out.writeLong(tx.getCreatedAt().toEpochMilli());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<ShopTransaction> decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported transaction archive format " + version);
+            }
+
+            int count = in.readInt();
+            List<ShopTransaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = (int) in.readLong();
+                UUID guildId = readUuid(in);
+                String regionId = in.readUTF();
+                String transactionType = in.readUTF();
+                double amount = in.readDouble();
+                String description = in.readBoolean() ? in.readUTF() : null;
+                UUID actorId = in.readBoolean() ? readUuid(in) : null;
+                Instant createdAt = Instant.ofEpochMilli(in.readLong());
+                transactions.add(new ShopTransaction(id, guildId, regionId, transactionType, amount,
+                    description, actorId, createdAt));
+            }
+            return transactions;
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,30 @@
+package net.lumalyte.armbridge.storage;
+
+/**
+ * Position in a guild's transaction history (newest first), used to fetch the next page
+ * Pages are keyed on (created_at, id), so fetching page N costs the same as fetching page 1.
+ */
+public class TransactionCursor {
+    private final long createdAtMillis;
+    private final long id;
+
+    public TransactionCursor(long createdAtMillis, long id) {
+        this.createdAtMillis = createdAtMillis;
+        this.id = id;
+    }
+
+    /**
+     * Cursor positioned just after the given transaction
+     */
+    public static TransactionCursor after(ShopTransaction transaction) {
+        return new TransactionCursor(transaction.getCreatedAt().toEpochMilli(), transaction.getId());
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,302 @@
+package net.lumalyte.armbridge.storage;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind journal for arm_shop_transactions
+ *
+ * Transactions are queued by the caller and written by a dedicated writer thread in batched
+ * multi-row transactions, together with their arm_shop_transaction_rollups updates. Enqueueing never
+ * blocks and the queue is bounded: when it is full (the database has stalled or can't keep up) the
+ * transaction is dropped and counted rather than holding up the main thread or growing the heap.
+ * A batch that fails to write is retried (with a growing pause) up to the retry limit before its rows
+ * are given up on; the writer takes no new rows while it retries, so at most one batch is held back.
+ */
+public class TransactionJournal {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO arm_shop_transactions
+        (guild_id, region_id, transaction_type, amount, description, actor_uuid, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private final Logger logger;
+    private final DatabaseManager database;
+    private final BlockingQueue<PendingTransaction> queue;
+    // Rows of the last failed batch, waiting for another attempt (at most one batch)
+    private final ConcurrentLinkedQueue<PendingTransaction> retries = new ConcurrentLinkedQueue<>();
+    // Held shared by enqueue and exclusively by close, so no row is queued after close has drained the queue
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final long flushIntervalNanos;
+    private final int batchSize;
+    private final int maxRetries;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param logger Plugin logger
+     * @param database Shared database (batches run on its writer connection)
+     * @param queueCapacity Maximum number of queued transactions; further ones are dropped until there is room
+     * @param batchSize Maximum number of rows written per database transaction
+     * @param flushIntervalMs Maximum time a queued transaction waits before being written
+     * @param maxRetries Times a failed batch is retried before its rows are dropped
+     */
+    public TransactionJournal(Logger logger, DatabaseManager database, int queueCapacity, int batchSize,
+                              long flushIntervalMs, int maxRetries) {
+        this.logger = logger;
+        this.database = database;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMs));
+        this.maxRetries = Math.max(0, maxRetries);
+
+        this.writerThread = new Thread(this::runWriter, "ARMGuildsBridge-TransactionJournal");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue a transaction for writing (never blocks while the journal is running)
+     *
+     * @return true if the transaction was queued or written; false if the queue was full and it was dropped
+     */
+    public boolean enqueue(UUID guildId, String regionId, String transactionType,
+                           double amount, String description, UUID actorId) {
+        PendingTransaction pending = new PendingTransaction(guildId, regionId, transactionType,
+            amount, description, actorId, System.currentTimeMillis());
+
+        closeLock.readLock().lock();
+        try {
+            if (running) {
+                if (queue.offer(pending)) {
+                    return true;
+                }
+                overflowed.increment();
+                // Log the first overflow of a burst, not every row
+                if (overflowed.sum() % 1000 == 1) {
+                    logger.severe("Shop transaction queue is full - dropped " + overflowed.sum() +
+                        " transactions so far (database stalled or audit.journal.queue-capacity too small)");
+                }
+                return false;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        // Journal closed (plugin disabling) - nothing will drain the queue any more
+        return writeBatch(List.of(pending));
+    }
+
+    /**
+     * Number of transactions waiting to be written (queued or awaiting a retry)
+     */
+    public int getPendingCount() {
+        return queue.size() + retries.size();
+    }
+
+    /**
+     * Number of transactions dropped because the queue was full
+     */
+    public long getOverflowedCount() {
+        return overflowed.sum();
+    }
+
+    /**
+     * Number of transactions put back for another attempt after a failed batch
+     */
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    /**
+     * Number of transactions given up on after exhausting their retries
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stop the writer thread and write every queued transaction before returning
+     */
+    public void close() {
+        // Once this returns no enqueue can still be adding to the queue; later ones write inline
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingTransaction> remaining = new ArrayList<>();
+        drainRetries(remaining, Integer.MAX_VALUE);
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            List<PendingTransaction> batch = remaining.subList(i, Math.min(i + batchSize, remaining.size()));
+            if (!writeBatch(batch)) {
+                dropped.add(batch.size());
+            }
+        }
+
+        if (!remaining.isEmpty()) {
+            logger.info("Flushed " + remaining.size() + " queued shop transactions");
+        }
+    }
+
+    private void runWriter() {
+        List<PendingTransaction> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                // A failed batch is retried on its own before any new rows are taken
+                drainRetries(batch, Integer.MAX_VALUE);
+                if (batch.isEmpty()) {
+                    batch.add(queue.take());
+
+                    // Collect more rows until the batch is full or the flush interval has passed
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remaining <= 0) {
+                            break;
+                        }
+                        PendingTransaction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shutting down - write what we have, close() drains the rest
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                if (!writeBatch(batch)) {
+                    int attempts = requeueFailed(batch);
+                    if (running && attempts > 0) {
+                        pauseBeforeRetry(attempts);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void drainRetries(List<PendingTransaction> batch, int max) {
+        PendingTransaction next;
+        for (int i = 0; i < max && (next = retries.poll()) != null; i++) {
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Put the rows of a failed batch back for another attempt, dropping rows out of retries
+     *
+     * @return Highest attempt count among the requeued rows (0 if none were requeued)
+     */
+    private int requeueFailed(List<PendingTransaction> batch) {
+        int requeued = 0;
+        int attempts = 0;
+        for (PendingTransaction tx : batch) {
+            if (++tx.attempts > maxRetries) {
+                dropped.increment();
+                continue;
+            }
+            retries.add(tx);
+            requeued++;
+            attempts = Math.max(attempts, tx.attempts);
+        }
+
+        retried.add(requeued);
+        if (requeued < batch.size()) {
+            logger.severe("Dropped " + (batch.size() - requeued) + " shop transactions after " + maxRetries +
+                " failed retries");
+        }
+        return attempts;
+    }
+
+    private void pauseBeforeRetry(int attempts) {
+        try {
+            Thread.sleep(Math.min(5000L, 250L * attempts));
+        } catch (InterruptedException e) {
+            running = false; // Shutting down - close() drains the requeued rows
+        }
+    }
+
+    private boolean writeBatch(List<PendingTransaction> batch) {
+        try {
+            database.writeTransaction(conn -> {
+                PreparedStatement stmt = conn.prepare(INSERT_SQL);
+                RollupBatch rollups = new RollupBatch();
+                for (PendingTransaction tx : batch) {
+                    stmt.setBytes(1, UuidCodec.toBytes(tx.guildId));
+                    stmt.setString(2, tx.regionId);
+                    stmt.setString(3, tx.transactionType);
+                    stmt.setDouble(4, tx.amount);
+                    stmt.setString(5, tx.description);
+                    stmt.setBytes(6, UuidCodec.toBytes(tx.actorId));
+                    stmt.setLong(7, tx.createdAtMillis);
+                    stmt.addBatch();
+                    rollups.add(tx.guildId, tx.regionId, tx.transactionType, tx.amount, tx.createdAtMillis);
+                }
+                stmt.executeBatch();
+                rollups.write(conn);
+                return null;
+            });
+            return true;
+        } catch (SQLException e) {
+            logger.warning("Failed to write " + batch.size() + " shop transactions: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * A transaction waiting to be written
+     */
+    private static final class PendingTransaction {
+        private final UUID guildId;
+        private final String regionId;
+        private final String transactionType;
+        private final double amount;
+        private final String description;
+        private final UUID actorId;
+        private final long createdAtMillis;
+        // Failed write attempts so far (writer thread only)
+        private int attempts;
+
+        private PendingTransaction(UUID guildId, String regionId, String transactionType, double amount,
+                                   String description, UUID actorId, long createdAtMillis) {
+            this.guildId = guildId;
+            this.regionId = regionId;
+            this.transactionType = transactionType;
+            this.amount = amount;
+            this.description = description;
+            this.actorId = actorId;
+            this.createdAtMillis = createdAtMillis;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package net.lumalyte.armbridge.storage;
+
+import java.io.IOException;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Retention policy for arm_shop_transactions
+ *
+ * Transactions older than the retention period are (optionally) archived into arm_shop_transactions_archive
+ * and deleted, a small chunk per database transaction so the write lock is only ever held briefly.
+ * Their amounts are already in arm_shop_transaction_rollups (folded in when each row was written),
+ * so finance reports are unaffected. Freed pages are then returned to the file system with incremental vacuum.
+ */
+public class TransactionRetention {
+
+    private static final String SELECT_EXPIRED = """
+        SELECT id, guild_id, region_id, transaction_type, amount, description, actor_uuid, created_at
+        FROM arm_shop_transactions
+        ORDER BY id
+        LIMIT ?
+    """;
+
+    private static final String INSERT_ARCHIVE = """
+        INSERT INTO arm_shop_transactions_archive
+        (first_transaction_id, last_transaction_id, oldest_created_at, newest_created_at, row_count, archived_at, data)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private static final String DELETE_EXPIRED = """
+        DELETE FROM arm_shop_transactions
+        WHERE id BETWEEN ? AND ?
+    """;
+
+    private static final int VACUUM_PAGES_PER_STEP = 2000;
+
+    private final Logger logger;
+    private final DatabaseManager database;
+    private final long retentionMillis;
+    private final boolean archive;
+    private final int chunkSize;
+    private final long chunkPauseMs;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param logger Plugin logger
+     * @param database Shared database
+     * @param retentionDays Transactions older than this are removed
+     * @param archive Whether removed transactions are kept in the compressed archive table
+     * @param chunkSize Transactions removed per database transaction
+     * @param chunkPauseMs Pause between chunks so live writes are not delayed
+     */
+    public TransactionRetention(Logger logger, DatabaseManager database, int retentionDays, boolean archive,
+                                int chunkSize, long chunkPauseMs) {
+        this.logger = logger;
+        this.database = database;
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.archive = archive;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkPauseMs = Math.max(0, chunkPauseMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ARMGuildsBridge-Retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run the retention policy periodically
+     *
+     * @param initialDelayMinutes Delay before the first run (keeps it out of server startup)
+     * @param intervalHours Time between runs
+     */
+    public void start(long initialDelayMinutes, long intervalHours) {
+        scheduler.scheduleWithFixedDelay(this::run, TimeUnit.MINUTES.toMillis(initialDelayMinutes),
+            TimeUnit.HOURS.toMillis(Math.max(1, intervalHours)), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the policy; a run in progress stops after its current chunk
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long started = System.nanoTime();
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        long removed = 0;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int chunk = database.writeTransaction(conn -> removeChunk(conn, cutoff));
+                if (chunk == 0) {
+                    break;
+                }
+                removed += chunk;
+                if (chunk < chunkSize) {
+                    break; // Reached the cutoff (or the end of the table)
+                }
+                Thread.sleep(chunkPauseMs);
+            }
+
+            long freedPages = removed > 0 ? vacuum() : 0;
+            if (removed > 0) {
+                logger.info((archive ? "Archived " : "Deleted ") + removed + " shop transactions older than " +
+                    TimeUnit.MILLISECONDS.toDays(retentionMillis) + " days and freed " + freedPages + " pages in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            logger.severe("Transaction retention failed after " + removed + " rows: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Archive and delete the oldest chunk of expired transactions
+     * Rows are walked in rowid order (id follows creation time) and the walk stops at the first row that
+     * hasn't expired, so the chunk is always a contiguous id range and no created_at index is needed.
+     *
+     * @return Number of rows removed (less than the chunk size once the cutoff was reached)
+     */
+    private int removeChunk(DatabaseConnection conn, long cutoff) throws SQLException {
+        PreparedStatement select = conn.prepare(SELECT_EXPIRED);
+        select.setInt(1, chunkSize);
+
+        List<ShopTransaction> expired = new ArrayList<>();
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                if (rs.getLong("created_at") >= cutoff) {
+                    break;
+                }
+                expired.add(new ShopTransaction(
+                    rs.getInt("id"),
+                    UuidCodec.fromBytes(rs.getBytes("guild_id")),
+                    rs.getString("region_id"),
+                    rs.getString("transaction_type"),
+                    rs.getDouble("amount"),
+                    rs.getString("description"),
+                    UuidCodec.fromBytes(rs.getBytes("actor_uuid")),
+                    Instant.ofEpochMilli(rs.getLong("created_at"))
+                ));
+            }
+        }
+
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        long firstId = expired.get(0).getId();
+        long lastId = expired.get(expired.size() - 1).getId();
+
+        if (archive) {
+            long oldest = Long.MAX_VALUE;
+            long newest = Long.MIN_VALUE;
+            for (ShopTransaction tx : expired) {
+                oldest = Math.min(oldest, tx.getCreatedAt().toEpochMilli());
+                newest = Math.max(newest, tx.getCreatedAt().toEpochMilli());
+            }
+
+            byte[] data;
+            try {
+                data = TransactionArchive.encode(expired);
+            } catch (IOException e) {
+                throw new SQLException("Failed to encode transaction archive", e);
+            }
+
+            PreparedStatement insert = conn.prepare(INSERT_ARCHIVE);
+            insert.setLong(1, firstId);
+            insert.setLong(2, lastId);
+            insert.setLong(3, oldest);
+            insert.setLong(4, newest);
+            insert.setInt(5, expired.size());
+            insert.setLong(6, System.currentTimeMillis());
+            insert.setBytes(7, data);
+            insert.executeUpdate();
+        }
+
+        PreparedStatement delete = conn.prepare(DELETE_EXPIRED);
+        delete.setLong(1, firstId);
+        delete.setLong(2, lastId);
+        delete.executeUpdate();
+
+        return expired.size();
+    }
+
+    /**
+     * Return free pages to the file system a step at a time
+     * Databases without incremental auto-vacuum keep their free pages for reuse instead.
+     *
+     * @return Number of pages freed
+     */
+    private long vacuum() throws SQLException, InterruptedException {
+        if (!database.isIncrementalVacuum()) {
+            return 0;
+        }
+
+        long freed = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long before = database.write(conn -> {
+                long freePages = freelistCount(conn);
+                if (freePages > 0) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("PRAGMA incremental_vacuum(" + VACUUM_PAGES_PER_STEP + ")");
+                    }
+                }
+                return freePages;
+            });
+
+            if (before <= VACUUM_PAGES_PER_STEP) {
+                return freed + before;
+            }
+            freed += VACUUM_PAGES_PER_STEP;
+            Thread.sleep(chunkPauseMs);
+        }
+        return freed;
+    }
+
+    private long freelistCount(DatabaseConnection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA freelist_count")) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package net.lumalyte.armbridge.storage;
+
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated shop transaction amounts for one guild
+ * Region and day are null when the rollup spans all regions or all days.
+ */
+public class TransactionRollup {
+    private final String regionId;
+    private final LocalDate day;
+    private final String transactionType;
+    private final double total;
+    private final long count;
+    private final double minAmount;
+    private final double maxAmount;
+
+    public TransactionRollup(String regionId, LocalDate day, String transactionType,
+                             double total, long count, double minAmount, double maxAmount) {
+        this.regionId = regionId;
+        this.day = day;
+        this.transactionType = transactionType;
+        this.total = total;
+        this.count = count;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    public String getRegionId() {
+        return regionId;
+    }
+
+    /**
+     * @return UTC day, or null if the rollup spans several days
+     */
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMinAmount() {
+        return minAmount;
+    }
+
+    public double getMaxAmount() {
+        return maxAmount;
+    }
+}
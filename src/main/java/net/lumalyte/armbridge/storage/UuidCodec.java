@@ -0,0 +1,41 @@
+package net.lumalyte.armbridge.storage;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from the 16-byte big-endian form stored in BLOB columns
+ */
+public final class UuidCodec {
+
+    private UuidCodec() {
+    }
+
+    /**
+     * @return 16-byte representation, or null if uuid is null
+     */
+    public static byte[] toBytes(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+
+    /**
+     * @return UUID decoded from 16 bytes, or null if bytes is null
+     * @throws IllegalArgumentException if bytes is not 16 bytes long
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Expected 16 bytes for UUID, got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}